@@ -0,0 +1,54 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import paxby.combinatorics.tsp.Instances;
+import paxby.combinatorics.tsp.Tour;
+
+/**
+ * Time for one ant to construct a tour (without local search)
+ * 
+ * @author Petter Axby
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConstructionBenchmark {
+
+	@Param({ "tsplibx/random300.tsp", "tsplibx/clusters300.tsp", "random-1000", "random-5000" })
+	public String instance;
+
+	@Param({ "DENSE", "SPARSE" })
+	public ASConfig.PheromoneStorage storage;
+
+	private AS as;
+
+	@Setup
+	public void setUp() throws Exception {
+		ASConfig config = new ASConfig();
+		config.setPheromoneStorage(storage);
+		as = new AS(Instances.load(instance), config);
+		as.setSeed(1);
+	}
+
+	@Benchmark
+	public Tour constructTour() {
+		return as.constructTour();
+	}
+}
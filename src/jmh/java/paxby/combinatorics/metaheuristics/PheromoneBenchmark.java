@@ -0,0 +1,69 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import paxby.combinatorics.tsp.Instances;
+
+/**
+ * Time of the pheromone update of one iteration: evaporation and deposit, for AS and MMAS
+ * 
+ * @author Petter Axby
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PheromoneBenchmark {
+
+	@Param({ "tsplibx/random300.tsp", "random-1000", "random-5000" })
+	public String instance;
+
+	@Param({ "AS", "MMAS" })
+	public String algorithm;
+
+	@Param({ "DENSE", "SPARSE" })
+	public ASConfig.PheromoneStorage storage;
+
+	@Param({ "false", "true" })
+	public boolean lazyEvaporation;
+
+	private AS as;
+
+	@Setup
+	public void setUp() throws Exception {
+		ASConfig config = new ASConfig();
+		config.setPheromoneStorage(storage);
+		config.setLazyEvaporation(lazyEvaporation);
+		config.setLocalSearch(null);
+
+		as = algorithm.equals("MMAS") ? new MMAS(Instances.load(instance), config)
+				: new AS(Instances.load(instance), config);
+		as.setSeed(1);
+		as.solve(1); // tours and trail limits of the first iteration
+	}
+
+	@Benchmark
+	public void evaporate() {
+		as.evaporate();
+	}
+
+	@Benchmark
+	public void addPheromone() {
+		as.addPheromone();
+	}
+}
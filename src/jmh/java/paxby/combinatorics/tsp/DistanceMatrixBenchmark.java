@@ -0,0 +1,51 @@
+package paxby.combinatorics.tsp;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to compute the full distance matrix of an instance, and the packed upper triangle of MatrixDistance
+ * 
+ * @author Petter Axby
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DistanceMatrixBenchmark {
+
+	@Param({ "tsplibx/random300.tsp", "tsplibx/clusters300.tsp", "random-1000", "random-5000" })
+	public String instance;
+
+	private List<Node> nodes;
+
+	@Setup
+	public void setUp() throws Exception {
+		nodes = Instances.load(instance).getNodes();
+	}
+
+	@Benchmark
+	public int[][] distanceMatrix() {
+		return TSP.getDistanceMatrix(nodes);
+	}
+
+	@Benchmark
+	public MatrixDistance packedDistanceMatrix() {
+		return new MatrixDistance(nodes);
+	}
+}
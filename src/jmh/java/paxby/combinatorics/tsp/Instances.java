@@ -0,0 +1,113 @@
+package paxby.combinatorics.tsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * TSP instances for benchmarks. An instance is given either as the name of a TSPLIB file, e.g.
+ * "tsplibx/random300.tsp", or as "random-n" or "clustered-n" for a generated instance with n nodes. Generated
+ * instances follow the DIMACS TSP challenge generators: nodes uniformly distributed in a 1,000,000 x 1,000,000 square,
+ * or normally distributed around n / 10 uniformly distributed centres. The same name always gives the same instance.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class Instances {
+
+	private static final double SIDE = 1000000;
+	private static final long SEED = 1;
+
+	private Instances() {
+	}
+
+	public static TSP load(String instance) throws Exception {
+
+		if (instance.startsWith("random-")) {
+			return new TSP(random(Integer.parseInt(instance.substring(7))));
+		}
+		if (instance.startsWith("clustered-")) {
+			return new TSP(clustered(Integer.parseInt(instance.substring(10))));
+		}
+		return new TSP(instance);
+	}
+
+	/**
+	 * @return n nodes uniformly distributed in the square
+	 */
+	public static List<Node> random(int n) {
+
+		Random random = new Random(SEED);
+		List<Node> nodes = new ArrayList<Node>(n);
+
+		for (int i = 0; i < n; i++) {
+			nodes.add(new Node(i, Math.floor(random.nextDouble() * SIDE), Math.floor(random.nextDouble() * SIDE)));
+		}
+		return nodes;
+	}
+
+	/**
+	 * @return n nodes normally distributed around n / 10 centres, with standard deviation SIDE / sqrt(n)
+	 */
+	public static List<Node> clustered(int n) {
+
+		Random random = new Random(SEED);
+		int centres = Math.max(1, n / 10);
+		double[] cx = new double[centres];
+		double[] cy = new double[centres];
+
+		for (int c = 0; c < centres; c++) {
+			cx[c] = random.nextDouble() * SIDE;
+			cy[c] = random.nextDouble() * SIDE;
+		}
+
+		double sd = SIDE / Math.sqrt(n);
+		List<Node> nodes = new ArrayList<Node>(n);
+
+		for (int i = 0; i < n; i++) {
+			int c = random.nextInt(centres);
+			nodes.add(new Node(i, Math.floor(cx[c] + random.nextGaussian() * sd),
+					Math.floor(cy[c] + random.nextGaussian() * sd)));
+		}
+		return nodes;
+	}
+
+	/**
+	 * Builds a greedy nearest neighbour tour starting at node 0, preferring the candidate lists and scanning all nodes
+	 * only when all candidates have been visited
+	 * 
+	 * @return permutation of node indices, in the order they are visited
+	 */
+	public static int[] nearestNeighbourWalk(TSP tsp, CandidateList candidates) {
+
+		Distance distance = tsp.getDistance();
+		int size = tsp.getSize();
+		int[] walk = new int[size];
+		boolean[] visited = new boolean[size];
+		visited[0] = true;
+
+		for (int k = 1; k < size; k++) {
+			int i = walk[k - 1];
+			int next = -1;
+
+			for (int c = candidates.getStart(i); c < candidates.getEnd(i) && next < 0; c++) {
+				if (!visited[candidates.getCandidate(c)]) {
+					next = candidates.getCandidate(c);
+				}
+			}
+
+			if (next < 0) {
+				int best = Integer.MAX_VALUE;
+				for (int j = 0; j < size; j++) {
+					if (!visited[j] && distance.get(i, j) < best) {
+						best = distance.get(i, j);
+						next = j;
+					}
+				}
+			}
+			walk[k] = next;
+			visited[next] = true;
+		}
+		return walk;
+	}
+}
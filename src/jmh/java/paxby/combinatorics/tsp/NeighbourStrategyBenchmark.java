@@ -0,0 +1,56 @@
+package paxby.combinatorics.tsp;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to build the candidate lists of an instance with each NeighbourStrategy
+ * 
+ * @author Petter Axby
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NeighbourStrategyBenchmark {
+
+	@Param({ "tsplibx/random300.tsp", "tsplibx/clusters300.tsp", "random-10000", "clustered-10000",
+			"random-100000", "clustered-100000" })
+	public String instance;
+
+	@Param({ "NN", "QNN" })
+	public String strategy;
+
+	@Param({ "20" })
+	public int neighbours;
+
+	private List<Node> nodes;
+	private NeighbourStrategy neighbourStrategy;
+
+	@Setup
+	public void setUp() throws Exception {
+		nodes = Instances.load(instance).getNodes();
+		neighbourStrategy = strategy.equals("QNN") ? new QNearestNeighbourStrategy()
+				: new NearestNeighbourStrategy();
+	}
+
+	@Benchmark
+	public CandidateList candidateList() {
+		return neighbourStrategy.getCandidateList(nodes, neighbours);
+	}
+}
@@ -0,0 +1,67 @@
+package paxby.combinatorics.tsp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of one 2-opt call, improving a greedy nearest neighbour tour to a local optimum. With the default settings of
+ * TwoOpt (dontLookBits = false) this is the search done by Tour.twoOpt.
+ * 
+ * @author Petter Axby
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TwoOptBenchmark {
+
+	@Param({ "tsplibx/random300.tsp", "tsplibx/clusters300.tsp", "random-1000", "random-10000" })
+	public String instance;
+
+	@Param({ "false", "true" })
+	public boolean dontLookBits;
+
+	@Param({ "25" })
+	public int neighbours;
+
+	private TSP tsp;
+	private CandidateList candidates;
+	private int[] walk;
+	private TwoOpt twoOpt;
+	private Tour tour;
+
+	@Setup
+	public void setUp() throws Exception {
+		tsp = Instances.load(instance);
+		candidates = new NearestNeighbourStrategy().getCandidateList(tsp.getNodes(), neighbours, tsp.getDistance());
+		walk = Instances.nearestNeighbourWalk(tsp, candidates);
+		twoOpt = new TwoOpt();
+		twoOpt.setDontLookBits(dontLookBits);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpTour() {
+		tour = new Tour(tsp, walk);
+	}
+
+	@Benchmark
+	public int twoOpt() {
+		twoOpt.improve(tour, candidates);
+		return tour.getLength();
+	}
+}
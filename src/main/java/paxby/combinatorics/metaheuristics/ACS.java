@@ -0,0 +1,62 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.Random;
+
+import paxby.combinatorics.tsp.TSP;
+
+/**
+ * Implements the Ant Colony System (as an extension of the Ant System):
+ * <ul>
+ * <li>pseudo-random proportional rule: with probability q0 an ant takes the candidate with the highest choice
+ * information, otherwise it samples as in the Ant System</li>
+ * <li>local pheromone update: each edge an ant adds is moved towards the initial trail tau0, tau = (1 - xi) * tau + xi
+ * * tau0, which makes the edge less attractive to the following ants</li>
+ * <li>global pheromone update on the edges of the best tour only, tau = (1 - rho) * tau + rho / length, so there is
+ * no evaporation of all edges</li>
+ * </ul>
+ * As trails change during construction, ants are constructed sequentially (the threads of the configuration are not
+ * used).
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class ACS extends AS {
+
+	private final double q0;
+	private final double xi;
+	private final double tau0;
+
+	public ACS(TSP tsp, ASConfig config) {
+		super(tsp, config, null, true);
+		this.q0 = config.getQ0();
+		this.xi = config.getXi();
+
+		tau0 = 1.0 / tsp.getSize() / nnTourLength;
+		pheromone.setAll(tau0);
+	}
+
+	@Override
+	protected boolean isGreedyStep(Random random) {
+		return random.nextDouble() < q0;
+	}
+
+	@Override
+	protected void localPheromoneUpdate(int i, int j) {
+		pheromone.setTau(i, j, (1 - xi) * pheromone.getTau(i, j) + xi * tau0);
+	}
+
+	@Override
+	protected void evaporate() {
+		// only the edges of the best tour evaporate, in addPheromone
+	}
+
+	@Override
+	protected void addPheromone() {
+		double deposit = rho / bestTour.getLength();
+
+		for (int i = 0; i < tsp.getSize(); i++) {
+			int j = bestTour.getNext(i);
+			pheromone.setTau(i, j, (1 - rho) * pheromone.getTau(i, j) + deposit);
+		}
+	}
+}
@@ -1,15 +1,24 @@
 package paxby.combinatorics.metaheuristics;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import paxby.combinatorics.tsp.CandidateList;
+import paxby.combinatorics.tsp.InstanceCache;
+import paxby.combinatorics.tsp.KDTree;
+import paxby.combinatorics.tsp.LocalSearch;
 import paxby.combinatorics.tsp.NeighbourStrategy;
-import paxby.combinatorics.tsp.Node;
+import paxby.combinatorics.tsp.Preprocessing;
 import paxby.combinatorics.tsp.TSP;
 import paxby.combinatorics.tsp.Tour;
+import paxby.combinatorics.tsp.UnvisitedNodes;
 
 /**
  * An implementation of the Ant System
@@ -20,67 +29,129 @@ import paxby.combinatorics.tsp.Tour;
 public class AS extends MetaHeuristic {
 
 	public static final double LAMBDA = 0.05; // for branching factor
+	private static final int MAX_REJECTIONS = 8; // alias table draws of visited candidates before scanning the list
 
 	protected final int alpha, beta;
 	protected final int m;
 	protected final double rho;
 	protected final boolean localSearch;
-	protected final Map<Node,List<Node>> constructMap;
-	protected final Map<Node,List<Node>> localMap;
-	protected final double[][] tau; // pheromone trail
-	protected final double[][] eta; // heuristic value (1 / distance ^ beta)
-	protected final double[][] pre; // pre-computed tau ^ alpha * eta
+	protected final LocalSearch localSearchEngine;
+	protected final CandidateList constructList;
+	protected final CandidateList localList;
+	protected final Pheromone pheromone; // pheromone trails and pre-computed choice information
 	protected Tour[] tours; // tours found at last iteration
+	private Tour reference; // best tour of the previous iteration, the starting point of local search
+
+	private final AliasTables aliasTables; // null unless Selection.ALIAS
+	private final KDTree tree; // null unless Selection.ALIAS
+	private final ExecutorService executor; // null if ants are constructed sequentially
+	private final List<Ant> ants; // working storage of each ant
+	private Checkpoint checkpoint; // null unless checkpoints are written
+	private int checkpointInterval;
+
+	protected final int nnTourLength; // length of the NN tour + LS, for initialisation of tau trails
 
 	public AS(TSP tsp, ASConfig config) {
+		this(tsp, config, null);
+	}
+
+	/**
+	 * Create an Ant System that shares the candidate lists and initial tau trails of another instance on the same TSP
+	 * and configuration, so that they are only computed once. Pheromone trails and random streams are not shared.
+	 * 
+	 * @param tsp
+	 *            the TSP
+	 * @param config
+	 *            configuration
+	 * @param template
+	 *            instance to share preprocessing with, or null
+	 */
+	AS(TSP tsp, ASConfig config, AS template) {
+		this(tsp, config, template, false);
+	}
+
+	/**
+	 * Create an Ant System for a variant that updates pheromone trails while ants are constructed (see
+	 * localPheromoneUpdate). Ants are then constructed sequentially, and Selection.ALIAS only uses the nearest
+	 * unvisited node, as the alias tables would be out of date.
+	 * 
+	 * @param tsp
+	 *            the TSP
+	 * @param config
+	 *            configuration
+	 * @param template
+	 *            instance to share preprocessing with, or null
+	 * @param localPheromoneUpdate
+	 *            true if trails are updated during construction
+	 */
+	protected AS(TSP tsp, ASConfig config, AS template, boolean localPheromoneUpdate) {
 		super(tsp);
 		this.alpha = config.getAlpha();
 		this.beta = config.getBeta();
 		this.rho = config.getRho();
 		this.m = config.getM();
+		this.localSearchEngine = config.getLocalSearch();
 		
+		InstanceCache cache = config.getInstanceCache();
+
 		NeighbourStrategy constructStrategy = config.getConstructStrategy();
-		constructMap = constructStrategy.getMap(tsp.getNodes(), config.getConstructNeighbours());
+		constructList = template != null ? template.constructList
+				: getCandidateList(cache, constructStrategy, config.getConstructNeighbours());
 
 		NeighbourStrategy localStrategy = config.getLocalStrategy();
 
-		if (localStrategy == null) {
+		if (localStrategy == null || localSearchEngine == null) {
 			localSearch = false;
-			localMap = null;
+			localList = null;
 		} else {
 			localSearch = true;
-			localMap = localStrategy.getMap(tsp.getNodes(), config.getLocalNeighbours());
+			localList = template != null ? template.localList
+					: getCandidateList(cache, localStrategy, config.getLocalNeighbours());
 		}
 
-		tau = new double[tsp.getSize()][tsp.getSize()];
-		eta = new double[tsp.getSize()][tsp.getSize()];
-		pre = new double[tsp.getSize()][tsp.getSize()];
-		initialiseArrays();
-	}
+		if (config.getPheromoneStorage() == ASConfig.PheromoneStorage.SPARSE) {
+			pheromone = new SparsePheromone(tsp.getDistance(), constructList, alpha, beta,
+					config.isLazyEvaporation());
+		} else {
+			pheromone = new DensePheromone(tsp.getSize(), tsp.getDistance(), constructList, alpha, beta,
+					config.isLazyEvaporation(), Preprocessing.getExecutor(tsp.getSize()));
+		}
 
-	private void initialiseArrays() {
+		int nnTourLength = template != null ? template.nnTourLength : cache == null ? -1
+				: cache.getNNTourLength(tsp, constructStrategy, config.getConstructNeighbours());
 
-		int[][] distance = tsp.getDistanceMatrix();
-		
-		for (int i = 0; i < tsp.getSize() - 1; i++) {
+		if (nnTourLength < 0) {
+			nnTourLength = getNNTourLength();
+			if (cache != null) {
+				cache.putNNTourLength(tsp, constructStrategy, config.getConstructNeighbours(), nnTourLength);
+			}
+		}
+		this.nnTourLength = nnTourLength;
+		pheromone.setAll(1.0 / rho / nnTourLength);
 
-			for (int j = i + 1; j < tsp.getSize(); j++) {
+		if (config.getSelection() == ASConfig.Selection.ALIAS) {
+			aliasTables = localPheromoneUpdate ? null : new AliasTables(constructList, pheromone);
+			tree = template != null && template.tree != null ? template.tree : new KDTree(tsp.getNodes());
+		} else {
+			aliasTables = null;
+			tree = null;
+		}
 
-				if (distance[i][j] != 0) {
-					eta[i][j] = pow(1.0 / distance[i][j], beta);
-				} else {
-					eta[i][j] = Double.POSITIVE_INFINITY;
-				}
-				eta[j][i] = eta[i][j];
-			}
+		metrics.setEnabled(config.isMetrics());
+
+		executor = localPheromoneUpdate ? null : config.getExecutor();
+		ants = new ArrayList<Ant>();
+
+		for (int i = 0; i < (executor == null ? 1 : m); i++) {
+			ants.add(new Ant());
 		}
+	}
 
-		int estimatedLength = getNNTourLength();
-		for (int i = 0; i < tsp.getSize() - 1; i++) {
-			for (int j = i + 1; j < tsp.getSize(); j++) {
-				updatePheromone(i, j, 1.0 / rho / estimatedLength);
-			}
+	private CandidateList getCandidateList(InstanceCache cache, NeighbourStrategy strategy, int size) {
+		if (cache == null) {
+			return strategy.getCandidateList(tsp.getNodes(), size, tsp.getDistance());
 		}
+		return cache.getCandidateList(tsp, strategy, size);
 	}
 
 	/**
@@ -89,182 +160,199 @@ public class AS extends MetaHeuristic {
 	private int getNNTourLength() {
 
 		Tour nnTour = tsp.getNNTour();
-		nnTour.twoOpt(constructMap);
+		nnTour.twoOpt(constructList);
 		return nnTour.getLength();
 	}
 
 	/**
-	 * Construct and return a tour
-	 * 
-	 * @return the Tour
+	 * Evaporate tau trails
 	 */
-	private Tour constructTour() {
-
-		List<Node> nodes = tsp.getNodes();
-		List<Node> walk = new ArrayList<Node>();
-		Set<Node> visited = new HashSet<Node>();
-
-		walk.add(nodes.get(0));
-	
-		while (walk.size() < nodes.size()) {
-			Node current = walk.get(walk.size() - 1);
-			visited.add(current);
-			walk.add(findNextNode(current, visited));
-		}
-		return new Tour(tsp, walk);
+	protected void evaporate() {
+		pheromone.evaporate(1 - rho, 0);
 	}
 
 	/**
-	 * Returns an unvisited node from the candidate list probabilistically, or, if all nodes in CL visited, return node
-	 * with highest probability
-	 * 
-	 * @param currentNode
-	 *            The current node
-	 * @param visited
-	 *            A set of visited nodes
-	 * @return The successor node
+	 * Loop through nodes in all tours and update tau trails
 	 */
-	private Node findNextNode(Node currentNode, Set<Node> visited) {
+	protected void addPheromone() {
+		for (Tour tour : tours) {
+			for (int i = 0; i < tsp.getSize(); i++) {
+				int j = tour.getNext(i);
+				pheromone.setTau(i, j, pheromone.getTau(i, j) + 1.0 / tour.getLength());
+			}
+		}
+	}
 
-		int n1 = currentNode.getIndex();
-		boolean found = false;
-		double s = 0;
+	@Override
+	protected Tour nextIteration() {
 
-		for (Node node: constructMap.get(currentNode)) {
-			int n2 = node.getIndex();
+		tours = new Tour[m];
 
-			if (!visited.contains(node)) {
-				found = true;
-				if (Double.isInfinite(pre[n1][n2])) {
-					return node;
-				}
-				s += pre[n1][n2];
-			}
+		if (aliasTables != null) {
+			aliasTables.build(); // pheromone trails have changed since the last iteration
 		}
 
-		if (found) { // an unvisited node was found in the CL
-			double p = ran.nextDouble() * s;
-			double t = 0;
-
-			for (Node node: constructMap.get(currentNode)) {
-				int n2 = node.getIndex();
+		for (Ant ant: ants) {
+			ant.metrics.setEnabled(metrics.isEnabled());
+		}
 
-				if (!visited.contains(node)) {
-					double dt = pre[n1][n2];
+		// each ant draws from its own random stream, so that seeded runs give the same result regardless of the number
+		// of threads
+		long[] seeds = new long[m];
+		for (int i = 0; i < m; i++) {
+			seeds[i] = ran.nextLong();
+		}
 
-					if (p >= t && p <= (t + dt)) {
-						return node;
-					}
-					t += dt;
-				}
+		if (executor == null) {
+			Ant ant = ants.get(0);
+			for (int i = 0; i < m && !shouldStop(); i++) {
+				ant.random.setSeed(seeds[i]);
+				tours[i] = ant.constructAnt(ant.random);
 			}
 		} else {
+			constructAntsInParallel(seeds);
+		}
 
-			// No unvisited node found in the CL. Return the node with the highest probability
+		if (metrics.isEnabled()) { // disabled ants record nothing, so there is nothing to drain
+			for (Ant ant: ants) {
+				ant.metrics.drainTo(metrics);
+			}
+		}
 
-			double bestEta = 0;
-			Node bestNode = null;
-			
-			for (Node node: tsp.getNodes()) {
-				int n2 = node.getIndex();
+		tours = removeNulls(tours); // ants that were not constructed, if the iteration was stopped
 
-				if (!visited.contains(node)) {
-					if (Double.isInfinite(pre[n1][n2])) {
-						return node;
-					}
-					if (pre[n1][n2] > bestEta) {
-						bestEta = pre[n1][n2];
-						bestNode = node;
-					}
-				}
+		Tour iterationBestTour = null;
+		int iterationBestLength = Integer.MAX_VALUE;
+
+		for (Tour tour: tours) {
+			if (tour.getLength() < iterationBestLength) {
+				iterationBestLength = tour.getLength();
+				iterationBestTour = tour;
 			}
-			return bestNode;
 		}
 
-		// this should never happen
-		assert false;
-		return null;
+		if (iterationBestTour != null && !shouldStop()) { // a stopped iteration does not update the search state
+			reference = iterationBestTour;
+		}
+		return iterationBestTour;
 	}
 
-	/**
-	 * Update the raw and pre-computed tau trails (symmetrically)
-	 * 
-	 * @param i
-	 *            index of first node
-	 * @param j
-	 *            index of second node
-	 * @param value
-	 *            new value for tau
-	 */
-	final void updatePheromone(int i, int j, double value) {
-		tau[i][j] = value;
-		tau[j][i] = value;
-		pre[i][j] = pow(tau[i][j], alpha) * eta[i][j];
-		pre[j][i] = pre[i][j];
+	private static Tour[] removeNulls(Tour[] tours) {
+		int count = 0;
+		for (Tour tour: tours) {
+			if (tour != null) {
+				tours[count++] = tour;
+			}
+		}
+		return count == tours.length ? tours : Arrays.copyOf(tours, count);
 	}
 
 	/**
-	 * Evaporate tau trails
+	 * Construct a single tour, without local search, using the random stream of the metaheuristic. Used by benchmarks.
 	 */
-	protected void evaporate() {
-		for (int i = 0; i < tsp.getSize() - 1; i++) {
-			for (int j = i + 1; j < tsp.getSize(); j++) {
-				updatePheromone(i, j, tau[i][j] * (1 - rho));
-			}
-		}
+	Tour constructTour() {
+		return ants.get(0).constructTour(ran);
 	}
 
 	/**
-	 * Loop through nodes in all tours and update tau trails
+	 * Construct the tours of all ants using the executor. Pheromone trails are only read while ants are constructed.
+	 * 
+	 * @param seeds
+	 *            seed of the random stream of each ant
 	 */
-	protected void addPheromone() {
-		for (Tour tour : tours) {
-			for (int i = 0; i < tsp.getSize(); i++) {
-				int j = tour.getNext(i);
-				updatePheromone(i, j, tau[i][j] + 1.0 / tour.getLength());
+	private void constructAntsInParallel(long[] seeds) {
+
+		for (int i = 0; i < m; i++) {
+			ants.get(i).random.setSeed(seeds[i]);
+		}
+
+		try {
+			List<Future<Tour>> futures = executor.invokeAll(ants);
+			for (int i = 0; i < m; i++) {
+				tours[i] = futures.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while constructing ants", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
 			}
+			throw new IllegalStateException("Unable to construct ant", e.getCause());
 		}
 	}
 
-	/**
-	 * Slightly faster than Math.pow()
-	 */
-	private static double pow(double b, int e) {
-		double r = b;
-		for (int i = 0; i < e - 1; i++) {
-			r *= b;
-		}
-		return r;
+	@Override
+	protected void nextIterationPostUpdate() {
+		long start = metrics.start();
+		evaporate();
+		start = metrics.stop(Metrics.Phase.EVAPORATION, start);
+		addPheromone();
+		metrics.stop(Metrics.Phase.DEPOSIT, start);
 	}
 
 	@Override
-	protected Tour nextIteration() {
+	public Snapshot getSnapshot() {
+		return new Snapshot(iteration, bestTour, getBranchingFactor());
+	}
 
-		tours = new Tour[m];
-		for (int i = 0; i < m; i++) {
-			tours[i] = constructTour();
-			if (localSearch) {
-				tours[i].twoOpt(localMap);
+	@Override
+	protected void iterationCompleted() {
+		if (checkpoint != null && iteration % checkpointInterval == 0) {
+			try {
+				checkpoint.save(this);
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to write checkpoint", e);
 			}
 		}
+	}
 
-		Tour iterationBestTour = null;
-		int iterationBestLength = Integer.MAX_VALUE;
-
-		for (Tour tour: tours) {
-			if (tour.getLength() < iterationBestLength) {
-				iterationBestLength = tour.getLength();
-				iterationBestTour = tour;
-			}
+	/**
+	 * Write a checkpoint periodically. To resume, restore the checkpoint into a new instance before solving.
+	 * 
+	 * @param checkpoint
+	 *            checkpoint file
+	 * @param interval
+	 *            number of iterations between checkpoints
+	 */
+	public void setCheckpoint(Checkpoint checkpoint, int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
 		}
+		this.checkpoint = checkpoint;
+		this.checkpointInterval = interval;
+	}
 
-		return iterationBestTour;
+	Tour getReference() {
+		return reference;
 	}
 
-	@Override
-	protected void nextIterationPostUpdate() {
-		evaporate();
-		addPheromone();
+	void setReference(Tour reference) {
+		this.reference = reference;
+	}
+
+	/**
+	 * Decides, for each step of an ant, whether to take the candidate with the highest choice information rather than
+	 * sampling. Called from construction threads.
+	 * 
+	 * @param random
+	 *            random stream of the ant
+	 * @return false, to always sample (overridden by ACS)
+	 */
+	protected boolean isGreedyStep(Random random) {
+		return false;
+	}
+
+	/**
+	 * Called after an ant has added the edge (i, j) to its tour. Does nothing, as the Ant System only updates trails
+	 * after all ants have been constructed (overridden by ACS).
+	 * 
+	 * @param i
+	 *            index of node
+	 * @param j
+	 *            index of node
+	 */
+	protected void localPheromoneUpdate(int i, int j) {
 	}
 
 	/**
@@ -273,35 +361,220 @@ public class AS extends MetaHeuristic {
 	public double getBranchingFactor() {
 		int cnt = 0;
 
-		for (Node node1: tsp.getNodes()) {
+		for (int i = 0; i < tsp.getSize(); i++) {
 
-			int i = node1.getIndex();
 			double max = Double.MIN_VALUE;
 			double min = Double.MAX_VALUE;
 
-			for (Node node2: constructMap.get(node1)) {
+			for (int k = constructList.getStart(i); k < constructList.getEnd(i); k++) {
 				
-				int c = node2.getIndex();
+				double tau = pheromone.getCandidateTau(i, k);
 
-				if (tau[i][c] < min) {
-					min = tau[i][c];
+				if (tau < min) {
+					min = tau;
 				}
 
-				if (tau[i][c] > max) {
-					max = tau[i][c];
+				if (tau > max) {
+					max = tau;
 				}
 			}
 
 			double limit = LAMBDA * (max - min) + min;
 
-			for (Node node2: constructMap.get(node1)) {
-				int c = node2.getIndex();
-
-				if (tau[i][c] > limit) {
+			for (int k = constructList.getStart(i); k < constructList.getEnd(i); k++) {
+				if (pheromone.getCandidateTau(i, k) > limit) {
 					cnt++;
 				}
 			}
 		}
 		return 1.0 * cnt / 2 / tsp.getSize();
 	}
+
+	/**
+	 * Working storage of an ant. The buffers are reused from one tour to the next, so that a tour is constructed
+	 * without allocating anything but the Tour itself.
+	 */
+	private class Ant implements Callable<Tour> {
+
+		private final Random random = new Random(); // reseeded for every tour, see nextIteration
+		private final int[] walk = new int[tsp.getSize()];
+		private final int[] visited = new int[tsp.getSize()]; // node i is visited if visited[i] == generation
+		private int generation;
+		private final UnvisitedNodes unvisited = tree == null ? null : new UnvisitedNodes(tree);
+		private final Metrics metrics = new Metrics(); // drained into the metrics of the metaheuristic
+		private int fallbacks; // nodes chosen outside the candidate list in the current tour
+
+		@Override
+		public Tour call() {
+			return shouldStop() ? null : constructAnt(random);
+		}
+
+		/**
+		 * Construct a tour and, if enabled, improve it by local search. Local search starts from the edges that are not
+		 * in the best tour of the previous iteration, if the engine supports it.
+		 * 
+		 * @param random
+		 *            random stream of the ant
+		 * @return the Tour
+		 */
+		private Tour constructAnt(Random random) {
+			long start = metrics.start();
+			fallbacks = 0;
+			Tour tour = constructTour(random);
+			start = metrics.stop(Metrics.Phase.CONSTRUCTION, start);
+
+			if (localSearch) {
+				localSearchEngine.improve(tour, localList, reference);
+				metrics.stop(Metrics.Phase.LOCAL_SEARCH, start);
+				metrics.count(Metrics.Counter.MOVES, tour.getMoves());
+			}
+			metrics.count(Metrics.Counter.TOURS, 1);
+			metrics.count(Metrics.Counter.FALLBACKS, fallbacks);
+			return tour;
+		}
+
+		/**
+		 * Construct and return a tour
+		 * 
+		 * @param random
+		 *            random stream of the ant
+		 * @return the Tour
+		 */
+		private Tour constructTour(Random random) {
+
+			if (++generation == Integer.MAX_VALUE) {
+				Arrays.fill(visited, 0);
+				generation = 1;
+			}
+
+			walk[0] = 0;
+			visited[0] = generation;
+
+			if (unvisited != null) {
+				unvisited.reset();
+				unvisited.remove(0);
+			}
+
+			for (int k = 1; k < walk.length; k++) {
+				walk[k] = findNextNode(walk[k - 1], random);
+				visited[walk[k]] = generation;
+				localPheromoneUpdate(walk[k - 1], walk[k]);
+
+				if (unvisited != null) {
+					unvisited.remove(walk[k]);
+				}
+			}
+			localPheromoneUpdate(walk[walk.length - 1], walk[0]);
+			return new Tour(tsp, walk);
+		}
+
+		/**
+		 * Returns an unvisited node from the candidate list probabilistically (or greedily, see isGreedyStep), or, if
+		 * all nodes in CL visited, return node with highest probability. With Selection.ALIAS, candidates are drawn
+		 * from the alias tables, and the nearest unvisited node is returned if all nodes in CL are visited.
+		 * 
+		 * @param n1
+		 *            index of the current node
+		 * @param random
+		 *            random stream of the ant
+		 * @return index of the successor node
+		 */
+		private int findNextNode(int n1, Random random) {
+
+			if (isGreedyStep(random)) {
+				int best = -1;
+				double bestChoice = -1;
+
+				for (int c = constructList.getStart(n1); c < constructList.getEnd(n1); c++) {
+					int n2 = constructList.getCandidate(c);
+
+					if (visited[n2] != generation) {
+						double dt = pheromone.getCandidateChoice(n1, c);
+						if (dt > bestChoice) {
+							bestChoice = dt;
+							best = n2;
+						}
+					}
+				}
+				if (best >= 0) {
+					return best;
+				}
+			}
+
+			if (aliasTables != null && aliasTables.isUsable(n1)) {
+				// rejection sampling: a draw of an unvisited candidate follows the same distribution as the scan
+				for (int r = 0; r < MAX_REJECTIONS; r++) {
+					int n2 = constructList.getCandidate(aliasTables.sample(n1, random));
+					if (visited[n2] != generation) {
+						return n2;
+					}
+				}
+			}
+
+			int start = constructList.getStart(n1);
+			int end = constructList.getEnd(n1);
+			boolean found = false;
+			double s = 0;
+
+			for (int c = start; c < end; c++) {
+				int n2 = constructList.getCandidate(c);
+
+				if (visited[n2] != generation) {
+					found = true;
+					double dt = pheromone.getCandidateChoice(n1, c);
+					if (Double.isInfinite(dt)) {
+						return n2;
+					}
+					s += dt;
+				}
+			}
+
+			if (found) { // an unvisited node was found in the CL
+				double p = random.nextDouble() * s;
+				double t = 0;
+
+				for (int c = start; c < end; c++) {
+					int n2 = constructList.getCandidate(c);
+
+					if (visited[n2] != generation) {
+						double dt = pheromone.getCandidateChoice(n1, c);
+
+						if (p >= t && p <= (t + dt)) {
+							return n2;
+						}
+						t += dt;
+					}
+				}
+			} else {
+
+				// No unvisited node found in the CL. Return the node with the highest probability
+				fallbacks++;
+
+				if (unvisited != null) {
+					return unvisited.getNearest(n1);
+				}
+
+				double bestEta = 0;
+				int bestNode = -1;
+
+				for (int n2 = 0; n2 < visited.length; n2++) {
+					if (visited[n2] != generation) {
+						double dt = pheromone.getChoice(n1, n2);
+						if (Double.isInfinite(dt)) {
+							return n2;
+						}
+						if (dt > bestEta) {
+							bestEta = dt;
+							bestNode = n2;
+						}
+					}
+				}
+				return bestNode;
+			}
+
+			// this should never happen
+			assert false;
+			return -1;
+		}
+	}
 }
@@ -1,10 +1,33 @@
 package paxby.combinatorics.metaheuristics;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import paxby.combinatorics.tsp.InstanceCache;
+import paxby.combinatorics.tsp.LocalSearch;
 import paxby.combinatorics.tsp.NearestNeighbourStrategy;
 import paxby.combinatorics.tsp.NeighbourStrategy;
+import paxby.combinatorics.tsp.TwoOpt;
 
 public class ASConfig {
 
+	/**
+	 * How pheromone trails are stored
+	 */
+	public enum PheromoneStorage {
+		DENSE, // all edges
+		SPARSE // construction candidate-list edges only
+	}
+
+	/**
+	 * How ants choose the next node
+	 */
+	public enum Selection {
+		SCAN, // roulette wheel over the unvisited candidates; otherwise the best of all unvisited nodes
+		ALIAS // alias tables with rejection of visited candidates; otherwise the nearest unvisited node
+	}
+
 	private int alpha = 1;
 	private int beta = 2;
 	private int m = 25;
@@ -13,6 +36,16 @@ public class ASConfig {
 	private NeighbourStrategy localStrategy = new NearestNeighbourStrategy();
 	private int constructNeighbours = 20;
 	private int localNeighbours = 25;
+	private LocalSearch localSearch = new TwoOpt();
+	private PheromoneStorage pheromoneStorage = PheromoneStorage.DENSE;
+	private boolean lazyEvaporation = false;
+	private Selection selection = Selection.SCAN;
+	private int threads = 0; // 0 = construct ants sequentially on the solver thread
+	private ExecutorService executor;
+	private InstanceCache instanceCache; // null = no caching of candidate lists
+	private boolean metrics = false; // record phase timers and counters (see Metrics)
+	private double q0 = 0.9; // ACS: probability of taking the best candidate rather than sampling
+	private double xi = 0.1; // ACS: local evaporation rate
 
 	public int getAlpha() {
 		return alpha;
@@ -62,5 +95,81 @@ public class ASConfig {
 	public void setLocalNeighbours(int localNeighbours) {
 		this.localNeighbours = localNeighbours;
 	}
+	public LocalSearch getLocalSearch() {
+		return localSearch;
+	}
+	public void setLocalSearch(LocalSearch localSearch) {
+		this.localSearch = localSearch;
+	}
+	public PheromoneStorage getPheromoneStorage() {
+		return pheromoneStorage;
+	}
+	public void setPheromoneStorage(PheromoneStorage pheromoneStorage) {
+		this.pheromoneStorage = pheromoneStorage;
+	}
+	public boolean isLazyEvaporation() {
+		return lazyEvaporation;
+	}
+	public void setLazyEvaporation(boolean lazyEvaporation) {
+		this.lazyEvaporation = lazyEvaporation;
+	}
+	public Selection getSelection() {
+		return selection;
+	}
+	public void setSelection(Selection selection) {
+		this.selection = selection;
+	}
+	public int getThreads() {
+		return threads;
+	}
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	public InstanceCache getInstanceCache() {
+		return instanceCache;
+	}
+	public void setInstanceCache(InstanceCache instanceCache) {
+		this.instanceCache = instanceCache;
+	}
+	public double getQ0() {
+		return q0;
+	}
+	public void setQ0(double q0) {
+		this.q0 = q0;
+	}
+	public double getXi() {
+		return xi;
+	}
+	public void setXi(double xi) {
+		this.xi = xi;
+	}
+	public boolean isMetrics() {
+		return metrics;
+	}
+	public void setMetrics(boolean metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the executor used for constructing ants in parallel: either the injected executor or, if threads > 0, a
+	 * pool of daemon threads shared by all metaheuristics using this configuration
+	 * 
+	 * @return executor, or null if ants are to be constructed sequentially
+	 */
+	public synchronized ExecutorService getExecutor() {
+		if (executor == null && threads > 0) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "ant");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
 }
-	
\ No newline at end of file
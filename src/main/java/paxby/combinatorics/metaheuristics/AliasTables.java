@@ -0,0 +1,135 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.Random;
+
+import paxby.combinatorics.tsp.CandidateList;
+
+/**
+ * Alias tables (Walker / Vose) over the candidate list of each node, weighted by the choice information of the
+ * candidate edges, so that a candidate is drawn in O(1) regardless of the length of the list. The tables must be
+ * rebuilt whenever the pheromone trails change.
+ * 
+ * @author Petter Axby
+ * 
+ */
+class AliasTables {
+
+	private final CandidateList candidates;
+	private final Pheromone pheromone;
+
+	private final double[] probability; // probability of keeping the slot rather than taking its alias
+	private final int[] alias; // alias slot of each slot
+	private final boolean[] usable; // false if the weights of a node cannot be sampled (e.g. infinite)
+
+	// working storage
+	private final double[] weight;
+	private final int[] small, large;
+
+	AliasTables(CandidateList candidates, Pheromone pheromone) {
+
+		this.candidates = candidates;
+		this.pheromone = pheromone;
+
+		probability = new double[candidates.getTotal()];
+		alias = new int[candidates.getTotal()];
+		usable = new boolean[candidates.getSize()];
+
+		int max = 0;
+		for (int i = 0; i < candidates.getSize(); i++) {
+			max = Math.max(max, candidates.getCount(i));
+		}
+		weight = new double[max];
+		small = new int[max];
+		large = new int[max];
+	}
+
+	/**
+	 * Rebuild the tables of all nodes from the current choice information
+	 */
+	void build() {
+		for (int i = 0; i < candidates.getSize(); i++) {
+			build(i);
+		}
+	}
+
+	private void build(int i) {
+
+		int start = candidates.getStart(i);
+		int count = candidates.getCount(i);
+		double sum = 0;
+
+		for (int c = 0; c < count; c++) {
+			weight[c] = pheromone.getCandidateChoice(i, start + c);
+			sum += weight[c];
+		}
+
+		usable[i] = count > 0 && sum > 0 && !Double.isInfinite(sum) && !Double.isNaN(sum);
+
+		if (!usable[i]) {
+			return;
+		}
+
+		int smalls = 0;
+		int larges = 0;
+
+		for (int c = 0; c < count; c++) {
+			weight[c] *= count / sum; // mean 1
+			if (weight[c] < 1) {
+				small[smalls++] = c;
+			} else {
+				large[larges++] = c;
+			}
+		}
+
+		while (smalls > 0 && larges > 0) {
+			int s = small[--smalls];
+			int l = large[--larges];
+
+			probability[start + s] = weight[s];
+			alias[start + s] = start + l;
+
+			weight[l] -= 1 - weight[s];
+			if (weight[l] < 1) {
+				small[smalls++] = l;
+			} else {
+				large[larges++] = l;
+			}
+		}
+
+		// the rest have weight 1, up to rounding
+		while (larges > 0) {
+			int l = large[--larges];
+			probability[start + l] = 1;
+			alias[start + l] = start + l;
+		}
+		while (smalls > 0) {
+			int s = small[--smalls];
+			probability[start + s] = 1;
+			alias[start + s] = start + s;
+		}
+	}
+
+	/**
+	 * @return false if candidates of the node cannot be drawn from the tables
+	 */
+	boolean isUsable(int i) {
+		return usable[i];
+	}
+
+	/**
+	 * Draw a slot of the candidate list of a node, with probability proportional to its choice information
+	 * 
+	 * @param i
+	 *            index of node
+	 * @param random
+	 *            random stream
+	 * @return slot of the candidate list
+	 */
+	int sample(int i, Random random) {
+		int count = candidates.getCount(i);
+		double u = random.nextDouble() * count;
+		int c = Math.min((int) u, count - 1);
+		int slot = candidates.getStart(i) + c;
+		return u - c < probability[slot] ? slot : alias[slot];
+	}
+}
@@ -0,0 +1,193 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import paxby.combinatorics.tsp.Tour;
+
+/**
+ * Delivers the events of a metaheuristic to listeners on a separate (daemon) thread, so that slow listeners, e.g.
+ * GUIs, do not slow down the search. The solver thread only records the events:
+ * <ul>
+ * <li>new tours are queued, up to a bounded capacity; when the queue is full the oldest tour is dropped</li>
+ * <li>iterations are coalesced: listeners get the latest iteration, and may miss iterations in between</li>
+ * </ul>
+ * In addition, a snapshot of the metaheuristic (see MetaHeuristic.getSnapshot) is taken on the solver thread at the
+ * first iteration after the previous events have been delivered, so that listeners can read a consistent state of
+ * the search at their own pace, without racing it; getSnapshot returns the latest one.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class AsyncDispatcher implements MetaHeuristicEventListener {
+
+	private final MetaHeuristic metaHeuristic;
+	private final List<MetaHeuristicEventListener> listeners = new CopyOnWriteArrayList<MetaHeuristicEventListener>();
+	private final int capacity;
+	private final Thread thread;
+
+	// pending events, guarded by this
+	private final ArrayDeque<Tour> tours = new ArrayDeque<Tour>();
+	private int iteration;
+	private boolean iterationPending;
+	private MetaHeuristic.Snapshot pendingSnapshot;
+	private boolean snapshotWanted = true; // set when the consumer has caught up
+	private boolean closed;
+	private long dropped;
+
+	private volatile MetaHeuristic.Snapshot snapshot;
+
+	/**
+	 * Create a dispatcher and register it as a listener of the metaheuristic
+	 * 
+	 * @param metaHeuristic
+	 *            the metaheuristic
+	 * @param capacity
+	 *            maximum number of undelivered tours
+	 */
+	public AsyncDispatcher(MetaHeuristic metaHeuristic, int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+
+		this.metaHeuristic = metaHeuristic;
+		this.capacity = capacity;
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				dispatch();
+			}
+		}, "listeners");
+		thread.setDaemon(true);
+		thread.start();
+
+		metaHeuristic.addListener(this);
+	}
+
+	/**
+	 * Add listener, to be called on the dispatcher thread
+	 */
+	public void addListener(MetaHeuristicEventListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public synchronized void newTour(Tour tour) {
+		if (tours.size() == capacity) {
+			tours.removeFirst();
+			dropped++;
+		}
+		tours.addLast(tour);
+		notifyAll();
+	}
+
+	@Override
+	public void newIteration(int iteration) {
+
+		boolean take;
+
+		synchronized (this) {
+			take = snapshotWanted;
+			snapshotWanted = false;
+		}
+
+		// taken outside the lock, so that the dispatcher thread is not blocked meanwhile
+		MetaHeuristic.Snapshot s = take ? metaHeuristic.getSnapshot() : null;
+
+		synchronized (this) {
+			this.iteration = iteration;
+			iterationPending = true;
+			if (s != null) {
+				pendingSnapshot = s;
+			}
+			notifyAll();
+		}
+	}
+
+	/**
+	 * @return the latest snapshot handed to listeners, or null if none has been taken yet
+	 */
+	public MetaHeuristic.Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return number of tours dropped because the queue was full
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Deliver the pending events, and stop the dispatcher thread
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the dispatcher thread
+	 */
+	public void close() throws InterruptedException {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		thread.join();
+	}
+
+	private void dispatch() {
+
+		List<Tour> batch = new ArrayList<Tour>();
+
+		while (true) {
+
+			int iteration;
+			boolean hasIteration;
+			MetaHeuristic.Snapshot s;
+
+			synchronized (this) {
+				try {
+					while (!closed && tours.isEmpty() && !iterationPending) {
+						wait();
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				if (closed && tours.isEmpty() && !iterationPending) {
+					return;
+				}
+
+				batch.addAll(tours);
+				tours.clear();
+				hasIteration = iterationPending;
+				iterationPending = false;
+				iteration = this.iteration;
+				s = pendingSnapshot;
+				pendingSnapshot = null;
+			}
+
+			if (s != null) {
+				snapshot = s;
+			}
+
+			for (Tour tour: batch) {
+				for (MetaHeuristicEventListener listener: listeners) {
+					listener.newTour(tour);
+				}
+			}
+			batch.clear();
+
+			if (hasIteration) {
+				for (MetaHeuristicEventListener listener: listeners) {
+					listener.newIteration(iteration);
+				}
+			}
+
+			synchronized (this) {
+				snapshotWanted = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,348 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import paxby.combinatorics.tsp.Tour;
+
+/**
+ * Checkpoint of the state of an ant colony (AS and its subclasses) in a binary file: iteration, random number
+ * generator, best and reference tours, and pheromone trails (including the scale factor and timestamps of lazy
+ * evaporation). A colony restored from a checkpoint continues exactly as the colony that wrote it, given the same
+ * instance and configuration.
+ * 
+ * The file is memory-mapped and holds two slots, written alternately: a slot is marked incomplete while written and
+ * complete, with a higher sequence number, once forced to disk, so that a crash while saving leaves the previous
+ * checkpoint intact. Only values which changed since the slot was last written are stored, so only the pages with
+ * changed trails are written back (with lazy evaporation, those of the deposited edges).
+ * 
+ * A file which holds the checkpoint of another instance or configuration is not overwritten by save, unless
+ * overwriting is enabled (setOverwrite).
+ * 
+ * The checkpoint does not contain the preprocessing of the instance (candidate lists, distances, nearest neighbour
+ * tour); to avoid repeating it when resuming in a new process, use an InstanceCache (ASConfig.setInstanceCache).
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class Checkpoint {
+
+	private static final int MAGIC = 0x4143504b;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int RANDOM_SIZE = 512; // serialised java.util.Random
+	private static final int CHUNK = 1 << 27; // values per mapping (at most 1 GB of doubles)
+
+	// header
+	private static final int H_MAGIC = 0, H_VERSION = 4, H_NODES = 8, H_EDGES = 12, H_LAZY = 16, H_CANDIDATES = 20;
+
+	// slot, followed by the best tour, the reference tour, trails and (if lazy) timestamps
+	private static final int S_SEQUENCE = 0, S_COMPLETE = 8, S_ITERATION = 12, S_SCALE = 16, S_FLOOR = 24,
+			S_DEFAULT_TAU = 32, S_EPOCH = 40, S_RANDOM_LENGTH = 44, S_RANDOM = 48, S_TOURS = S_RANDOM + RANDOM_SIZE;
+
+	private final File file;
+
+	// open file, and its mappings: slot header and tours, trails and timestamps of each slot
+	private RandomAccessFile raf;
+	private MappedByteBuffer[] slots;
+	private MappedByteBuffer[][] taus, stamps;
+	private int nodes, edges;
+	private boolean overwrite = false;
+
+	/**
+	 * @param fileName
+	 *            checkpoint file, created by the first save if it does not exist
+	 */
+	public Checkpoint(String fileName) {
+		this.file = new File(fileName);
+	}
+
+	/**
+	 * Save the state of a colony; must not be called while an iteration is running.
+	 * 
+	 * @param as
+	 *            the colony
+	 * @throws IOException
+	 *             Unable to write the file, or it holds the checkpoint of another instance or configuration (unless
+	 *             overwriting is enabled)
+	 */
+	public synchronized void save(AS as) throws IOException {
+
+		open(as, true);
+
+		long sequence0 = getSequence(0), sequence1 = getSequence(1);
+		int s = sequence0 <= sequence1 ? 0 : 1; // older (or incomplete) slot
+		MappedByteBuffer slot = slots[s];
+		Pheromone pheromone = as.pheromone;
+
+		slot.putInt(S_COMPLETE, 0);
+		slot.force();
+
+		slot.putInt(S_ITERATION, as.iteration);
+		slot.putDouble(S_SCALE, pheromone.getScale());
+		slot.putDouble(S_FLOOR, pheromone.getFloor());
+		slot.putDouble(S_DEFAULT_TAU, pheromone.getDefaultTau());
+		slot.putInt(S_EPOCH, pheromone.getEpoch());
+
+		byte[] random = serialise(as.ran);
+		slot.putInt(S_RANDOM_LENGTH, random.length);
+		for (int i = 0; i < random.length; i++) {
+			slot.put(S_RANDOM + i, random[i]);
+		}
+
+		putTour(slot, S_TOURS, as.bestTour);
+		putTour(slot, S_TOURS + 4 * nodes, as.getReference());
+
+		for (int e = 0; e < edges; e++) {
+			MappedByteBuffer buffer = taus[s][e / CHUNK];
+			int index = 8 * (e % CHUNK);
+			long bits = Double.doubleToRawLongBits(pheromone.getRawTau(e));
+			if (buffer.getLong(index) != bits) {
+				buffer.putLong(index, bits);
+			}
+		}
+
+		if (pheromone.isLazy()) {
+			for (int e = 0; e < edges; e++) {
+				MappedByteBuffer buffer = stamps[s][e / CHUNK];
+				int index = 4 * (e % CHUNK);
+				int stamp = pheromone.getStamp(e);
+				if (buffer.getInt(index) != stamp) {
+					buffer.putInt(index, stamp);
+				}
+			}
+			force(stamps[s]);
+		}
+
+		force(taus[s]);
+		slot.force();
+
+		slot.putLong(S_SEQUENCE, Math.max(sequence0, sequence1) + 1);
+		slot.putInt(S_COMPLETE, 1);
+		slot.force();
+	}
+
+	/**
+	 * Restore the state of a colony from the latest complete checkpoint. The colony must have been created for the
+	 * same instance with the same configuration, and not yet solved.
+	 * 
+	 * @param as
+	 *            the colony
+	 * @return false if there is no checkpoint to restore
+	 * @throws IOException
+	 *             Unable to read the file, or the checkpoint does not match the colony
+	 */
+	public synchronized boolean restore(AS as) throws IOException {
+
+		if (!file.exists()) {
+			return false;
+		}
+
+		open(as, false);
+
+		long sequence0 = getSequence(0), sequence1 = getSequence(1);
+		if (sequence0 < 0 && sequence1 < 0) {
+			return false;
+		}
+
+		int s = sequence0 > sequence1 ? 0 : 1;
+		MappedByteBuffer slot = slots[s];
+		Pheromone pheromone = as.pheromone;
+
+		byte[] random = new byte[slot.getInt(S_RANDOM_LENGTH)];
+		for (int i = 0; i < random.length; i++) {
+			random[i] = slot.get(S_RANDOM + i);
+		}
+		as.ran = deserialise(random);
+
+		as.iteration = slot.getInt(S_ITERATION);
+		as.bestTour = getTour(as, slot, S_TOURS);
+		as.setReference(getTour(as, slot, S_TOURS + 4 * nodes));
+
+		for (int e = 0; e < edges; e++) {
+			pheromone.setRawTau(e, taus[s][e / CHUNK].getDouble(8 * (e % CHUNK)));
+		}
+		if (pheromone.isLazy()) {
+			for (int e = 0; e < edges; e++) {
+				pheromone.setStamp(e, stamps[s][e / CHUNK].getInt(4 * (e % CHUNK)));
+			}
+		}
+		pheromone.setState(slot.getDouble(S_SCALE), slot.getDouble(S_FLOOR), slot.getInt(S_EPOCH),
+				slot.getDouble(S_DEFAULT_TAU));
+
+		return true;
+	}
+
+	/**
+	 * Release the file. The checkpoint can still be used afterwards, reopening the file.
+	 */
+	public synchronized void close() throws IOException {
+		if (raf != null) {
+			raf.close();
+			raf = null;
+			slots = null;
+			taus = stamps = null;
+		}
+	}
+
+	/**
+	 * Open and map the file, creating it if it does not exist (or, when saving with overwriting enabled, if it does not
+	 * match the colony)
+	 */
+	private void open(AS as, boolean save) throws IOException {
+
+		int nodes = as.tsp.getSize();
+		int edges = as.pheromone.getEdgeCount();
+		boolean lazy = as.pheromone.isLazy();
+		int candidates = as.constructList.getTotal();
+
+		if (raf != null && nodes == this.nodes && edges == this.edges && lazy == (stamps[0] != null)) {
+			return;
+		}
+		close();
+
+		long slotSize = align(S_TOURS + 8L * nodes) + 8L * edges + (lazy ? align(4L * edges) : 0);
+		raf = new RandomAccessFile(file, "rw");
+
+		boolean matches = raf.length() == HEADER_SIZE + 2 * slotSize && readInt(H_MAGIC) == MAGIC
+				&& readInt(H_VERSION) == VERSION && readInt(H_NODES) == nodes && readInt(H_EDGES) == edges
+				&& readInt(H_LAZY) == (lazy ? 1 : 0) && readInt(H_CANDIDATES) == candidates;
+
+		if (!matches) {
+			if (!save || raf.length() > 0 && !overwrite) {
+				close();
+				throw new IOException("Checkpoint " + file + " does not match the instance or configuration");
+			}
+			// a new file: no complete slot
+			raf.setLength(0);
+			raf.setLength(HEADER_SIZE + 2 * slotSize);
+			raf.seek(H_MAGIC);
+			raf.writeInt(MAGIC);
+			raf.writeInt(VERSION);
+			raf.writeInt(nodes);
+			raf.writeInt(edges);
+			raf.writeInt(lazy ? 1 : 0);
+			raf.writeInt(candidates);
+			raf.getFD().sync();
+		}
+
+		FileChannel channel = raf.getChannel();
+		this.nodes = nodes;
+		this.edges = edges;
+		slots = new MappedByteBuffer[2];
+		taus = new MappedByteBuffer[2][];
+		stamps = new MappedByteBuffer[2][];
+
+		for (int s = 0; s < 2; s++) {
+			long position = HEADER_SIZE + s * slotSize;
+			long size = align(S_TOURS + 8L * nodes);
+			slots[s] = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+			position += size;
+			taus[s] = map(channel, position, edges, 8);
+			position += 8L * edges;
+			stamps[s] = lazy ? map(channel, position, edges, 4) : null;
+		}
+	}
+
+	public boolean isOverwrite() {
+		return overwrite;
+	}
+
+	/**
+	 * @param overwrite
+	 *            when saving, replace a file holding the checkpoint of another instance or configuration
+	 */
+	public synchronized void setOverwrite(boolean overwrite) {
+		this.overwrite = overwrite;
+	}
+
+	private int readInt(int position) throws IOException {
+		raf.seek(position);
+		return raf.readInt();
+	}
+
+	/**
+	 * @return sequence number of a slot, or -1 if incomplete
+	 */
+	private long getSequence(int s) {
+		return slots[s].getInt(S_COMPLETE) == 1 ? slots[s].getLong(S_SEQUENCE) : -1;
+	}
+
+	private static MappedByteBuffer[] map(FileChannel channel, long position, int count, int bytes)
+			throws IOException {
+
+		MappedByteBuffer[] buffers = new MappedByteBuffer[(count + CHUNK - 1) / CHUNK];
+		for (int c = 0; c < buffers.length; c++) {
+			long size = (long) Math.min(CHUNK, count - c * CHUNK) * bytes;
+			buffers[c] = channel.map(FileChannel.MapMode.READ_WRITE, position + (long) c * CHUNK * bytes, size);
+		}
+		return buffers;
+	}
+
+	private static void force(MappedByteBuffer[] buffers) {
+		for (MappedByteBuffer buffer : buffers) {
+			buffer.force();
+		}
+	}
+
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+
+	/**
+	 * Store the walk of a tour (-1 if null), writing changed values only
+	 */
+	private void putTour(MappedByteBuffer slot, int offset, Tour tour) {
+		int node = 0;
+		for (int p = 0; p < nodes; p++) {
+			int value = tour == null ? -1 : node;
+			if (slot.getInt(offset + 4 * p) != value) {
+				slot.putInt(offset + 4 * p, value);
+			}
+			if (tour != null) {
+				node = tour.getNext(node);
+			}
+		}
+	}
+
+	private Tour getTour(AS as, MappedByteBuffer slot, int offset) {
+		if (slot.getInt(offset) < 0) {
+			return null;
+		}
+		int[] walk = new int[nodes];
+		for (int p = 0; p < nodes; p++) {
+			walk[p] = slot.getInt(offset + 4 * p);
+		}
+		return new Tour(as.tsp, walk);
+	}
+
+	private static byte[] serialise(Random random) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(random);
+		out.close();
+		if (bytes.size() > RANDOM_SIZE) {
+			throw new IOException("Random number generator state too large: " + bytes.size() + " bytes");
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Random deserialise(byte[] bytes) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return (Random) in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Invalid random number generator state", e);
+		} finally {
+			in.close();
+		}
+	}
+}
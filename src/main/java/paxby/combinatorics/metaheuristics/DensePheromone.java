@@ -0,0 +1,71 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.concurrent.ExecutorService;
+
+import paxby.combinatorics.tsp.CandidateList;
+import paxby.combinatorics.tsp.Distance;
+import paxby.combinatorics.tsp.TriangularRows;
+
+/**
+ * Pheromone trails of all edges, stored in the upper triangle of an n x n matrix
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class DensePheromone extends Pheromone {
+
+	private final int size;
+
+	/**
+	 * @param executor
+	 *            executor computing heuristic values of blocks of rows in parallel (e.g. Preprocessing.getExecutor), or
+	 *            null to compute them on the calling thread
+	 */
+	public DensePheromone(final int size, Distance distance, CandidateList candidates, int alpha, int beta,
+			boolean lazy, ExecutorService executor) {
+		super(distance, candidates, alpha, beta, lazy);
+
+		this.size = size;
+		long edges = (long) size * (size - 1) / 2;
+
+		if (edges > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many nodes (" + size + ") for dense pheromone storage");
+		}
+
+		int[] candidateEdge = new int[candidates.getTotal()];
+
+		for (int i = 0; i < size; i++) {
+			for (int k = candidates.getStart(i); k < candidates.getEnd(i); k++) {
+				candidateEdge[k] = getEdge(i, candidates.getCandidate(k));
+			}
+		}
+
+		initialise((int) edges, candidateEdge);
+
+		TriangularRows rows = new TriangularRows() {
+			@Override
+			protected void computeRow(int i) {
+				int e = getEdge(i, i + 1);
+				for (int j = i + 1; j < size; j++) {
+					setEta(e++, getEta(i, j));
+				}
+			}
+		};
+
+		rows.run(size - 1, executor); // the last row is empty
+	}
+
+	/**
+	 * Edges (i, j), i < j, are stored row by row
+	 */
+	@Override
+	protected int getEdge(int i, int j) {
+		if (i > j) {
+			return getEdge(j, i);
+		}
+		if (i == j) {
+			return -1;
+		}
+		return (int) ((long) i * (2 * size - i - 1) / 2) + j - i - 1;
+	}
+}
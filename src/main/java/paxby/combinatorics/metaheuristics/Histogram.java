@@ -0,0 +1,77 @@
+package paxby.combinatorics.metaheuristics;
+
+/**
+ * Histogram of non-negative values (e.g. durations in nanoseconds) in power-of-two buckets: bucket b counts values v
+ * with 2^b <= v < 2^(b+1), and bucket 0 also counts 0. Recording is a single array increment, and never allocates;
+ * percentiles are accurate to within a factor of two. Not thread-safe.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class Histogram {
+
+	private static final int BUCKETS = 64;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+
+	public void record(long value) {
+		counts[value <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(value)]++;
+		count++;
+	}
+
+	/**
+	 * Add the counts of another histogram to this one
+	 */
+	public void add(Histogram other) {
+		for (int b = 0; b < BUCKETS; b++) {
+			counts[b] += other.counts[b];
+		}
+		count += other.count;
+	}
+
+	public void reset() {
+		for (int b = 0; b < BUCKETS; b++) {
+			counts[b] = 0;
+		}
+		count = 0;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns an upper bound of the value at a given percentile: the upper limit of the bucket containing it
+	 * 
+	 * @param percentile
+	 *            percentile, 0 < percentile <= 100
+	 * @return upper bound, or 0 if the histogram is empty
+	 */
+	public long getPercentile(double percentile) {
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(percentile / 100 * count);
+		long seen = 0;
+
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += counts[b];
+			if (seen >= rank) {
+				return b >= 62 ? Long.MAX_VALUE : (2L << b) - 1;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return a copy of the histogram
+	 */
+	public Histogram copy() {
+		Histogram copy = new Histogram();
+		copy.add(this);
+		return copy;
+	}
+}
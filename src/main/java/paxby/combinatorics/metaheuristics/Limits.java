@@ -0,0 +1,103 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conditions for stopping MetaHeuristic.solve(Limits): a maximum number of iterations, a time limit or deadline, a
+ * target tour length, and cancellation from another thread. Deadlines and cancellation are checked between ants and
+ * between iterations, so that solve returns within about the time of constructing (and improving) a single tour.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class Limits {
+
+	private int maxIterations = Integer.MAX_VALUE;
+	private long timeLimit = -1; // nanoseconds, -1 = none
+	private long deadline;
+	private boolean hasDeadline = false;
+	private int targetLength = 0; // 0 = none
+	private volatile boolean cancelled;
+
+	/**
+	 * @param maxIterations
+	 *            stop when the iteration count of the metaheuristic reaches maxIterations (as solve(int))
+	 */
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * @param duration
+	 *            stop when the given time has passed since the start of solve
+	 * @param unit
+	 *            unit of duration
+	 */
+	public void setTimeLimit(long duration, TimeUnit unit) {
+		this.timeLimit = unit.toNanos(duration);
+	}
+
+	/**
+	 * @param deadline
+	 *            stop when System.nanoTime() passes the deadline
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+		this.hasDeadline = true;
+	}
+
+	/**
+	 * @param targetLength
+	 *            stop when a tour of at most this length has been found
+	 */
+	public void setTargetLength(int targetLength) {
+		this.targetLength = targetLength;
+	}
+
+	/**
+	 * Request the solve using these limits to stop. May be called from any thread, before or during solve.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public int getTargetLength() {
+		return targetLength;
+	}
+
+	/**
+	 * @return true if there is a time limit or a deadline
+	 */
+	boolean hasDeadline() {
+		return timeLimit >= 0 || hasDeadline;
+	}
+
+	/**
+	 * Returns the deadline of a solve started at a given time: the earlier of the deadline and the time limit. Times
+	 * are compared by their difference, as System.nanoTime() may be negative or wrap around.
+	 * 
+	 * @param start
+	 *            start of solve (System.nanoTime())
+	 * @return deadline; undefined unless hasDeadline()
+	 */
+	long getDeadline(long start) {
+
+		if (timeLimit < 0) {
+			return deadline;
+		}
+		long result = start + timeLimit;
+
+		if (hasDeadline && deadline - result < 0) {
+			result = deadline;
+		}
+		return result;
+	}
+}
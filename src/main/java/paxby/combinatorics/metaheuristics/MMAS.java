@@ -1,8 +1,5 @@
 package paxby.combinatorics.metaheuristics;
 
-import java.util.List;
-
-import paxby.combinatorics.tsp.Node;
 import paxby.combinatorics.tsp.TSP;
 
 /**
@@ -19,42 +16,39 @@ public class MMAS extends AS {
 	private double pMax; // minimum tau (tau_min)
 
 	public MMAS(TSP tsp, ASConfig config) {
-		super(tsp, config);
+		this(tsp, config, null);
+	}
+
+	/**
+	 * Create a MAX-MIN Ant System that shares preprocessing with another instance (see AS)
+	 */
+	MMAS(TSP tsp, ASConfig config, MMAS template) {
+		super(tsp, config, template);
 
 		if (localSearch) {
 			pMinFactor = 1.0 / 2 / tsp.getSize();
 		} else {
 			double pDec = Math.pow(P_BEST, 1.0 / tsp.getSize());
-			double avg = 0;
-
-			for (List<Node> list: constructMap.values()) {
-				avg += list.size();
-			}
-			avg /= tsp.getSize();
+			double avg = 1.0 * constructList.getTotal() / tsp.getSize();
 			pMinFactor = (1 - pDec) / (avg / 2.0 - 1) / pDec;
 		}
 	}
 
 	@Override
 	protected void evaporate() {
-		for (int i = 0; i < tsp.getSize() - 1; i++) {
-			for (int j = i + 1; j < tsp.getSize(); j++) {
-				double p = tau[i][j] * (1 - rho);
-				if (p > pMin) {
-					updatePheromone(i, j, tau[i][j] * (1 - rho));
-				} else {
-					updatePheromone(i, j, pMin);
-				}
-			}
-		}
+		pheromone.evaporate(1 - rho, pMin);
 	}
 
 	@Override
 	protected void nextIterationPostUpdate() {
 		pMax = 1.0 / rho / bestTour.getLength();
 		pMin = pMax * pMinFactor;
+
+		long start = metrics.start();
 		evaporate();
+		start = metrics.stop(Metrics.Phase.EVAPORATION, start);
 		addPheromone();
+		metrics.stop(Metrics.Phase.DEPOSIT, start);
 	}
 
 	@Override
@@ -82,17 +76,17 @@ public class MMAS extends AS {
 			if (iteration % mod == 0) {
 				// global best update
 				j = bestTour.getNext(i);
-				p = tau[i][j] + 1.0 / bestTour.getLength();
+				p = pheromone.getTau(i, j) + 1.0 / bestTour.getLength();
 			} else {
 				// local best update
 				j = iterationBestTour.getNext(i);
-				p = tau[i][j] + 1.0 / iterationBestTour.getLength();
+				p = pheromone.getTau(i, j) + 1.0 / iterationBestTour.getLength();
 			}
 
 			if (p < pMax) {
-				updatePheromone(i, j, p);
+				pheromone.setTau(i, j, p);
 			} else {
-				updatePheromone(i, j, pMax);
+				pheromone.setTau(i, j, pMax);
 			}
 		}
 	}
@@ -19,6 +19,12 @@ abstract public class MetaHeuristic {
 	private final ArrayList<MetaHeuristicEventListener> eventListeners = new ArrayList<MetaHeuristicEventListener>();
 	protected Random ran = new Random();
 	protected TSP tsp;
+	protected final Metrics metrics = new Metrics();
+	private volatile Limits limits; // limits of the running solve, or null
+	private volatile long deadline; // deadline of the running solve, if hasDeadline
+	private volatile boolean hasDeadline;
+	private volatile boolean iterationStopped; // the current iteration was stopped before completion
+	private volatile MetaHeuristic parent; // metaheuristic running this one, whose stop conditions also apply, or null
 
 	protected MetaHeuristic(TSP tsp) {
 		this.tsp = tsp;
@@ -45,6 +51,72 @@ abstract public class MetaHeuristic {
 		return bestTour;
 	}
 
+	/**
+	 * Solve until one of the limits is reached: maximum number of iterations, deadline, target length or cancellation.
+	 * Deadline and cancellation are also checked while an iteration is running (between ants, see shouldStop); a
+	 * stopped iteration does not count and does not update the search state, but its best tour is kept.
+	 * 
+	 * @param limits
+	 *            stop conditions
+	 * @return best Tour found and the reason for stopping
+	 */
+	public final SolveResult solve(Limits limits) {
+
+		long start = System.nanoTime();
+		int startIteration = iteration;
+		SolveResult.StopReason reason;
+
+		this.hasDeadline = limits.hasDeadline();
+		this.deadline = limits.getDeadline(start);
+		this.limits = limits;
+
+		try {
+			while ((reason = getStopReason()) == null) {
+				nextIterationProcedure();
+			}
+		} finally {
+			this.limits = null;
+		}
+		return new SolveResult(bestTour, reason, iteration - startIteration, System.nanoTime() - start);
+	}
+
+	private SolveResult.StopReason getStopReason() {
+
+		if (limits.isCancelled()) {
+			return SolveResult.StopReason.CANCELLED;
+		}
+		if (bestTour != null && bestTour.getLength() <= limits.getTargetLength()) {
+			return SolveResult.StopReason.TARGET_LENGTH;
+		}
+		if (iteration >= limits.getMaxIterations()) {
+			return SolveResult.StopReason.ITERATIONS;
+		}
+		if (hasDeadline && System.nanoTime() - deadline >= 0) {
+			return SolveResult.StopReason.DEADLINE;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the running solve(Limits) has been cancelled or passed its deadline, in which case the current
+	 * iteration is stopped: nextIteration should return the best Tour built so far (or null if none) as soon as
+	 * possible. May be called from any thread.
+	 * 
+	 * @return true if the iteration should stop
+	 */
+	protected final boolean shouldStop() {
+
+		Limits limits = this.limits;
+
+		MetaHeuristic parent = this.parent;
+
+		if (limits != null && (limits.isCancelled() || hasDeadline && System.nanoTime() - deadline >= 0)
+				|| parent != null && parent.shouldStop()) {
+			iterationStopped = true;
+		}
+		return iterationStopped;
+	}
+
 	/**
 	 * Solve, while the improvement over a given number of iterations (period) falls below a given threshold
 	 * 
@@ -79,11 +151,27 @@ abstract public class MetaHeuristic {
 	 */
 	private void nextIterationProcedure() {
 
+		long start = metrics.start();
 		iteration++;
+		iterationStopped = false;
 
 		iterationBestTour = nextIteration();
 
-		if (iteration == 1 || iterationBestTour.getLength() < bestTour.getLength()) {
+		if (iterationStopped) {
+			// a stopped iteration does not count: its time is discarded, so that ITERATION only times complete ones
+			iteration--;
+			if (iterationBestTour != null
+					&& (bestTour == null || iterationBestTour.getLength() < bestTour.getLength())) {
+				bestTour = iterationBestTour;
+
+				for (MetaHeuristicEventListener listener : eventListeners) {
+					listener.newTour(bestTour);
+				}
+			}
+			return;
+		}
+
+		if (bestTour == null || iterationBestTour.getLength() < bestTour.getLength()) {
 			bestTour = iterationBestTour;
 
 			for (MetaHeuristicEventListener listener : eventListeners) {
@@ -97,6 +185,39 @@ abstract public class MetaHeuristic {
 		}
 
 		nextIterationPostUpdate();
+		iterationCompleted();
+		metrics.stop(Metrics.Phase.ITERATION, start);
+	}
+
+	/**
+	 * Run a single iteration on behalf of another metaheuristic (e.g. a colony of MultiColonyMMAS), which is stopped
+	 * between ants when the running solve(Limits) of the other metaheuristic is cancelled or passes its deadline
+	 * 
+	 * @param parent
+	 *            the metaheuristic running this one
+	 * @return false if the iteration was stopped (see solve(Limits))
+	 */
+	final boolean runIteration(MetaHeuristic parent) {
+		this.parent = parent;
+		try {
+			nextIterationProcedure();
+		} finally {
+			this.parent = null;
+		}
+		return !iterationStopped;
+	}
+
+	/**
+	 * Replace the best Tour found so far, if the given Tour is shorter. Listeners are not notified. Used to migrate
+	 * tours between colonies; must not be called while an iteration is running.
+	 * 
+	 * @param tour
+	 *            Tour found elsewhere, which is not modified afterwards
+	 */
+	void offerTour(Tour tour) {
+		if (bestTour == null || tour.getLength() < bestTour.getLength()) {
+			bestTour = tour;
+		}
 	}
 
 	/**
@@ -132,6 +253,56 @@ abstract public class MetaHeuristic {
 	 */
 	abstract protected void nextIterationPostUpdate();
 
+	/**
+	 * Code to be executed when an iteration, including nextIterationPostUpdate, has completed (e.g. checkpoints)
+	 */
+	protected void iterationCompleted() {
+	}
+
+	/**
+	 * Returns a consistent snapshot of the state of the search, which stays valid while the search goes on. Must be
+	 * called on the solver thread, e.g. from a listener (see AsyncDispatcher).
+	 * 
+	 * @return snapshot
+	 */
+	public Snapshot getSnapshot() {
+		return new Snapshot(iteration, bestTour, Double.NaN);
+	}
+
+	/**
+	 * State of the search at a given iteration
+	 */
+	public static class Snapshot {
+
+		private final int iteration;
+		private final Tour bestTour;
+		private final double branchingFactor;
+
+		public Snapshot(int iteration, Tour bestTour, double branchingFactor) {
+			this.iteration = iteration;
+			this.bestTour = bestTour;
+			this.branchingFactor = branchingFactor;
+		}
+
+		public int getIteration() {
+			return iteration;
+		}
+
+		/**
+		 * @return best Tour found, or null before the first iteration
+		 */
+		public Tour getBestTour() {
+			return bestTour;
+		}
+
+		/**
+		 * @return branching factor of the pheromone trails, or NaN if not applicable
+		 */
+		public double getBranchingFactor() {
+			return branchingFactor;
+		}
+	}
+
 	public int getIteration() {
 		return iteration;
 	}
@@ -140,6 +311,13 @@ abstract public class MetaHeuristic {
 		return bestTour;
 	}
 
+	/**
+	 * @return timers and counters of the metaheuristic (disabled unless enabled explicitly or by configuration)
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
 	public TSP getTSP() {
 		return tsp;
 	}
@@ -0,0 +1,289 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Timers and counters of a metaheuristic: the time spent in each phase of an iteration (monotonic clock, with a
+ * histogram of durations per phase), the number of tours built, moves applied by local search and fallbacks from the
+ * candidate list in tour construction. Disabled by default, in which case recording costs a single branch.
+ * 
+ * Recording threads that need to be fast (e.g. ants) record into their own instance, which is merged into the
+ * instance of the metaheuristic once per iteration with drainTo. Values can be read through getSnapshot, or through
+ * JMX once registered with registerMBean.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class Metrics implements MetricsMBean {
+
+	public enum Phase {
+		CONSTRUCTION, // construction of a tour, per ant
+		LOCAL_SEARCH, // local search of a tour, per ant
+		EVAPORATION,
+		DEPOSIT,
+		ITERATION // wall time of an iteration
+	}
+
+	public enum Counter {
+		TOURS, // tours built
+		MOVES, // improving moves applied by local search
+		FALLBACKS // nodes chosen outside the candidate list, as all candidates were visited
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final Counter[] COUNTERS = Counter.values();
+
+	private volatile boolean enabled;
+	private final long[] total = new long[PHASES.length]; // nanoseconds
+	private final long[] max = new long[PHASES.length];
+	private final Histogram[] histograms = new Histogram[PHASES.length];
+	private final long[] counters = new long[COUNTERS.length];
+	private ObjectName objectName; // null unless registered
+
+	public Metrics() {
+		for (int p = 0; p < PHASES.length; p++) {
+			histograms[p] = new Histogram();
+		}
+	}
+
+	/**
+	 * @return the current time, to be passed to stop, or 0 if disabled
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record the time of a phase
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param start
+	 *            the time returned by start (or by stop, for consecutive phases)
+	 * @return the current time, or 0 if disabled
+	 */
+	public long stop(Phase phase, long start) {
+		if (!enabled) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		record(phase, now - start);
+		return now;
+	}
+
+	public synchronized void record(Phase phase, long nanos) {
+		if (enabled) {
+			int p = phase.ordinal();
+			total[p] += nanos;
+			max[p] = Math.max(max[p], nanos);
+			histograms[p].record(nanos);
+		}
+	}
+
+	public synchronized void count(Counter counter, long n) {
+		if (enabled) {
+			counters[counter.ordinal()] += n;
+		}
+	}
+
+	/**
+	 * Add the values of this instance to another instance, and reset this one
+	 */
+	public synchronized void drainTo(Metrics target) {
+		synchronized (target) {
+			for (int p = 0; p < PHASES.length; p++) {
+				target.total[p] += total[p];
+				target.max[p] = Math.max(target.max[p], max[p]);
+				target.histograms[p].add(histograms[p]);
+			}
+			for (int c = 0; c < COUNTERS.length; c++) {
+				target.counters[c] += counters[c];
+			}
+		}
+		reset();
+	}
+
+	@Override
+	public synchronized void reset() {
+		for (int p = 0; p < PHASES.length; p++) {
+			total[p] = 0;
+			max[p] = 0;
+			histograms[p].reset();
+		}
+		for (int c = 0; c < COUNTERS.length; c++) {
+			counters[c] = 0;
+		}
+	}
+
+	/**
+	 * @return a consistent copy of the current values
+	 */
+	public synchronized Snapshot getSnapshot() {
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Register as an MBean with the platform MBean server, under paxby.combinatorics:type=Metrics,name=[name]
+	 * 
+	 * @param name
+	 *            name of the metaheuristic (run)
+	 */
+	public synchronized void registerMBean(String name) {
+		try {
+			ObjectName objectName = new ObjectName("paxby.combinatorics:type=Metrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.objectName = objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to register MBean " + name, e);
+		}
+	}
+
+	/**
+	 * Unregister the MBean, if registered
+	 */
+	public synchronized void unregisterMBean() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				// already unregistered
+			}
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Immutable copy of the values of a Metrics
+	 */
+	public static class Snapshot {
+
+		private final long[] total, max, counters;
+		private final Histogram[] histograms = new Histogram[PHASES.length];
+
+		private Snapshot(Metrics metrics) {
+			total = metrics.total.clone();
+			max = metrics.max.clone();
+			counters = metrics.counters.clone();
+			for (int p = 0; p < PHASES.length; p++) {
+				histograms[p] = metrics.histograms[p].copy();
+			}
+		}
+
+		/**
+		 * @return number of times the phase was recorded
+		 */
+		public long getCount(Phase phase) {
+			return histograms[phase.ordinal()].getCount();
+		}
+
+		public long getTotalNanos(Phase phase) {
+			return total[phase.ordinal()];
+		}
+
+		public long getMaxNanos(Phase phase) {
+			return max[phase.ordinal()];
+		}
+
+		public double getMeanNanos(Phase phase) {
+			long count = getCount(phase);
+			return count == 0 ? 0 : 1.0 * getTotalNanos(phase) / count;
+		}
+
+		/**
+		 * @return upper bound (within a factor of two) of the duration at the percentile, see Histogram
+		 */
+		public long getPercentileNanos(Phase phase, double percentile) {
+			return histograms[phase.ordinal()].getPercentile(percentile);
+		}
+
+		public long getCount(Counter counter) {
+			return counters[counter.ordinal()];
+		}
+
+		/**
+		 * @return tours built per second of iteration (wall) time
+		 */
+		public double getToursPerSecond() {
+			long nanos = getTotalNanos(Phase.ITERATION);
+			return nanos == 0 ? 0 : getCount(Counter.TOURS) * 1e9 / nanos;
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public long getIterations() {
+		return getSnapshot().getCount(Phase.ITERATION);
+	}
+
+	@Override
+	public long getToursBuilt() {
+		return getSnapshot().getCount(Counter.TOURS);
+	}
+
+	@Override
+	public double getToursPerSecond() {
+		return getSnapshot().getToursPerSecond();
+	}
+
+	@Override
+	public long getMoves() {
+		return getSnapshot().getCount(Counter.MOVES);
+	}
+
+	@Override
+	public long getFallbacks() {
+		return getSnapshot().getCount(Counter.FALLBACKS);
+	}
+
+	@Override
+	public double getConstructionMillis() {
+		return getSnapshot().getTotalNanos(Phase.CONSTRUCTION) / 1e6;
+	}
+
+	@Override
+	public double getLocalSearchMillis() {
+		return getSnapshot().getTotalNanos(Phase.LOCAL_SEARCH) / 1e6;
+	}
+
+	@Override
+	public double getEvaporationMillis() {
+		return getSnapshot().getTotalNanos(Phase.EVAPORATION) / 1e6;
+	}
+
+	@Override
+	public double getDepositMillis() {
+		return getSnapshot().getTotalNanos(Phase.DEPOSIT) / 1e6;
+	}
+
+	@Override
+	public double getIterationMillis() {
+		return getSnapshot().getTotalNanos(Phase.ITERATION) / 1e6;
+	}
+
+	@Override
+	public double getMeanIterationMillis() {
+		return getSnapshot().getMeanNanos(Phase.ITERATION) / 1e6;
+	}
+
+	@Override
+	public double getMaxIterationMillis() {
+		return getSnapshot().getMaxNanos(Phase.ITERATION) / 1e6;
+	}
+
+	@Override
+	public double getIterationMillisP99() {
+		return getSnapshot().getPercentileNanos(Phase.ITERATION, 99) / 1e6;
+	}
+}
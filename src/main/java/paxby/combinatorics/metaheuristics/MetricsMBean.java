@@ -0,0 +1,43 @@
+package paxby.combinatorics.metaheuristics;
+
+/**
+ * JMX view of the Metrics of a metaheuristic. Times are in milliseconds; construction and local search are summed
+ * over all ants (and threads), while iteration time is wall time.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public interface MetricsMBean {
+
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	void reset();
+
+	long getIterations();
+
+	long getToursBuilt();
+
+	double getToursPerSecond();
+
+	long getMoves();
+
+	long getFallbacks();
+
+	double getConstructionMillis();
+
+	double getLocalSearchMillis();
+
+	double getEvaporationMillis();
+
+	double getDepositMillis();
+
+	double getIterationMillis();
+
+	double getMeanIterationMillis();
+
+	double getMaxIterationMillis();
+
+	double getIterationMillisP99();
+}
@@ -0,0 +1,193 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import paxby.combinatorics.tsp.TSP;
+import paxby.combinatorics.tsp.Tour;
+
+/**
+ * Island model of the MAX-MIN Ant System: a number of independent MMAS colonies, each with its own pheromone trails
+ * and random stream, run in parallel. Every migrationInterval iterations the colonies exchange best tours along the
+ * topology: each colony takes over the best tour it receives if it is shorter than its own, so that it is reinforced
+ * by the global best update. An iteration runs one iteration of every colony; the best tour is kept, and listeners
+ * notified, by this metaheuristic only.
+ * 
+ * Colonies only interact between iterations, so seeded runs give the same result regardless of thread scheduling.
+ * Cancellation and deadlines of solve(Limits) stop the colonies between ants; colonies which had completed their
+ * iteration keep it, so the colonies may then be an iteration apart.
+ * 
+ * Colonies run on a pool of daemon threads, one per processor, shared by all instances; threads idle for a minute are
+ * released, so finished instances leave no threads behind.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class MultiColonyMMAS extends MetaHeuristic {
+
+	/**
+	 * Which colonies receive the best tour of each colony
+	 */
+	public enum Topology {
+		RING, // the next colony
+		FULLY_CONNECTED // all colonies
+	}
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private static ThreadPoolExecutor executor; // shared by all instances, created on first use
+
+	private final List<MMAS> colonies = new ArrayList<MMAS>();
+	private int migrationInterval = 25;
+	private Topology topology = Topology.RING;
+
+	/**
+	 * @param tsp
+	 *            the TSP
+	 * @param config
+	 *            configuration of each colony
+	 * @param colonies
+	 *            number of colonies
+	 */
+	public MultiColonyMMAS(TSP tsp, ASConfig config, int colonies) {
+		super(tsp);
+
+		if (colonies < 1) {
+			throw new IllegalArgumentException("At least one colony is required");
+		}
+
+		MMAS first = new MMAS(tsp, config);
+		this.colonies.add(first);
+
+		for (int i = 1; i < colonies; i++) {
+			this.colonies.add(new MMAS(tsp, config, first));
+		}
+	}
+
+	/**
+	 * @return the pool running the colonies of all instances
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			int threads = Runtime.getRuntime().availableProcessors();
+			executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "colony");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	/**
+	 * Set seed for random number generation. Each colony is seeded from the random stream of this metaheuristic.
+	 */
+	@Override
+	public void setSeed(int seed) {
+		super.setSeed(seed);
+		for (MMAS colony: colonies) {
+			colony.setSeed(ran.nextInt());
+		}
+	}
+
+	@Override
+	protected Tour nextIteration() {
+
+		List<Callable<Tour>> tasks = new ArrayList<Callable<Tour>>();
+
+		for (final MMAS colony: colonies) {
+			tasks.add(new Callable<Tour>() {
+				@Override
+				public Tour call() {
+					colony.runIteration(MultiColonyMMAS.this);
+					return colony.getBestTour();
+				}
+			});
+		}
+
+		Tour iterationBestTour = null;
+
+		try {
+			for (Future<Tour> future: getExecutor().invokeAll(tasks)) {
+				Tour tour = future.get();
+				if (tour != null && (iterationBestTour == null || tour.getLength() < iterationBestTour.getLength())) {
+					iterationBestTour = tour;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running colonies", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Unable to run colony", e.getCause());
+		}
+		return iterationBestTour;
+	}
+
+	@Override
+	protected void nextIterationPostUpdate() {
+		if (iteration % migrationInterval == 0) {
+			migrate();
+		}
+	}
+
+	/**
+	 * Send the best tour of each colony to its neighbours in the topology
+	 */
+	private void migrate() {
+
+		int n = colonies.size();
+
+		if (topology == Topology.FULLY_CONNECTED) {
+			for (MMAS colony: colonies) {
+				colony.offerTour(bestTour);
+			}
+		} else {
+			Tour[] best = new Tour[n];
+			for (int i = 0; i < n; i++) {
+				best[i] = colonies.get(i).getBestTour();
+			}
+			for (int i = 0; i < n; i++) {
+				colonies.get((i + 1) % n).offerTour(best[i]);
+			}
+		}
+	}
+
+	public int getColonies() {
+		return colonies.size();
+	}
+
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	public void setMigrationInterval(int migrationInterval) {
+		if (migrationInterval < 1) {
+			throw new IllegalArgumentException("Migration interval must be positive");
+		}
+		this.migrationInterval = migrationInterval;
+	}
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+	public void setTopology(Topology topology) {
+		this.topology = topology;
+	}
+}
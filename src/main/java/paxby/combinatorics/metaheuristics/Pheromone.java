@@ -0,0 +1,299 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.Arrays;
+
+import paxby.combinatorics.tsp.CandidateList;
+import paxby.combinatorics.tsp.Distance;
+
+/**
+ * Storage of the (symmetric) pheromone trails tau and the pre-computed choice information tau ^ alpha * eta, where eta
+ * = 1 / distance ^ beta is the heuristic value of an edge. Subclasses decide which edges are stored, and map each of
+ * them to an index of flat per-edge arrays. Edges that are not stored share a single default trail.
+ * 
+ * With lazy evaporation, evaporation only updates a global scale factor and the current lower limit of tau. Stored
+ * trails are relative to the scale factor, and the lower limit applies to edges that have not been updated since the
+ * last evaporation (per-edge timestamps). The trail and choice information of an edge are thus brought up to date
+ * when they are read or reinforced, and the cost of an iteration depends on the number of edges touched rather than
+ * n^2. This is exact (up to rounding) as long as the lower limit does not decrease - as for tau_min in MMAS; otherwise
+ * all edges are brought up to date before evaporating.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public abstract class Pheromone {
+
+	private static final double MIN_SCALE = 1e-100; // bring all edges up to date when the scale factor gets this small
+
+	protected final int alpha, beta;
+	protected final Distance distance;
+	protected final CandidateList candidates; // construction candidate lists
+	private final boolean lazy;
+
+	private int[] candidateEdge; // edge of each candidate slot
+	private double[] tau; // pheromone trail of each edge (relative to scale, if lazy)
+	private double[] eta; // heuristic value (1 / distance ^ beta) of each edge
+	private double[] pre; // pre-computed tau ^ alpha * eta of each edge (unless lazy)
+	private int[] stamp; // epoch of the last update of each edge (if lazy)
+	private double defaultTau; // pheromone trail of edges that are not stored
+
+	private double scale = 1; // product of evaporation factors since all edges were last brought up to date
+	private double floor; // current lower limit of tau
+	private int epoch; // number of evaporations
+
+	protected Pheromone(Distance distance, CandidateList candidates, int alpha, int beta, boolean lazy) {
+		this.distance = distance;
+		this.candidates = candidates;
+		this.alpha = alpha;
+		this.beta = beta;
+		this.lazy = lazy;
+	}
+
+	/**
+	 * Allocate the per-edge arrays. To be called from the constructor of subclasses.
+	 * 
+	 * @param edges
+	 *            number of edges stored
+	 * @param candidateEdge
+	 *            edge of each slot of the candidate lists
+	 */
+	protected void initialise(int edges, int[] candidateEdge) {
+
+		this.candidateEdge = candidateEdge;
+		tau = new double[edges];
+		eta = new double[edges];
+
+		if (lazy) {
+			stamp = new int[edges];
+		} else {
+			pre = new double[edges];
+		}
+	}
+
+	/**
+	 * @return the index of the edge between two nodes, or -1 if the edge is not stored
+	 */
+	protected abstract int getEdge(int i, int j);
+
+	/**
+	 * Set the heuristic value of a stored edge. To be called from the constructor of subclasses.
+	 */
+	protected void setEta(int e, double value) {
+		eta[e] = value;
+	}
+
+	/**
+	 * @return the pheromone trail of an edge
+	 */
+	public double getTau(int i, int j) {
+		int e = getEdge(i, j);
+		return e < 0 ? defaultTau : getEdgeTau(e);
+	}
+
+	/**
+	 * @return the pheromone trail of the edge from a node to the candidate in a slot of its candidate list
+	 * @param i
+	 *            index of node
+	 * @param k
+	 *            slot of the candidate list
+	 */
+	public double getCandidateTau(int i, int k) {
+		return getEdgeTau(candidateEdge[k]);
+	}
+
+	/**
+	 * @return the choice information (tau ^ alpha * eta) of an edge
+	 */
+	public double getChoice(int i, int j) {
+		int e = getEdge(i, j);
+		return e < 0 ? getChoice(defaultTau, getEta(i, j)) : getEdgeChoice(e);
+	}
+
+	/**
+	 * @return the choice information of the edge from a node to the candidate in a slot of its candidate list
+	 * @param i
+	 *            index of node
+	 * @param k
+	 *            slot of the candidate list
+	 */
+	public double getCandidateChoice(int i, int k) {
+		return getEdgeChoice(candidateEdge[k]);
+	}
+
+	/**
+	 * Update the pheromone trail of an edge (symmetrically). Ignored if the edge is not stored.
+	 * 
+	 * @param i
+	 *            index of first node
+	 * @param j
+	 *            index of second node
+	 * @param value
+	 *            new value for tau
+	 */
+	public void setTau(int i, int j, double value) {
+		int e = getEdge(i, j);
+		if (e >= 0) {
+			setEdgeTau(e, value);
+		}
+	}
+
+	/**
+	 * Set the pheromone trail of all edges
+	 * 
+	 * @param value
+	 *            new value for tau
+	 */
+	public void setAll(double value) {
+		if (lazy) {
+			scale = 1;
+			Arrays.fill(stamp, epoch);
+		}
+		for (int e = 0; e < tau.length; e++) {
+			setEdgeTau(e, value);
+		}
+		defaultTau = value;
+	}
+
+	/**
+	 * Evaporate all pheromone trails, i.e. tau = max(tau * factor, min)
+	 * 
+	 * @param factor
+	 *            evaporation factor (1 - rho)
+	 * @param min
+	 *            lower limit of tau (0 if none)
+	 */
+	public void evaporate(double factor, double min) {
+
+		if (lazy) {
+			if (min < floor) {
+				update();
+			}
+			epoch++;
+			scale *= factor;
+			floor = min;
+
+			if (scale < MIN_SCALE) {
+				update();
+			}
+		} else {
+			for (int e = 0; e < tau.length; e++) {
+				double p = tau[e] * factor;
+				tau[e] = p > min ? p : min;
+				pre[e] = getChoice(tau[e], eta[e]);
+			}
+		}
+
+		double p = defaultTau * factor;
+		defaultTau = p > min ? p : min;
+	}
+
+	/**
+	 * Bring all (lazily evaporated) edges up to date, and reset the scale factor
+	 */
+	private void update() {
+		for (int e = 0; e < tau.length; e++) {
+			tau[e] = getEdgeTau(e);
+			stamp[e] = epoch;
+		}
+		scale = 1;
+	}
+
+	private double getEdgeTau(int e) {
+		if (!lazy) {
+			return tau[e];
+		}
+		double t = tau[e] * scale;
+		return stamp[e] == epoch || t > floor ? t : floor;
+	}
+
+	private double getEdgeChoice(int e) {
+		return lazy ? getChoice(getEdgeTau(e), eta[e]) : pre[e];
+	}
+
+	private void setEdgeTau(int e, double value) {
+		if (lazy) {
+			tau[e] = value / scale;
+			stamp[e] = epoch;
+		} else {
+			tau[e] = value;
+			pre[e] = getChoice(value, eta[e]);
+		}
+	}
+
+	// Raw state, for checkpoints: stored trails are relative to the scale factor if lazy
+
+	int getEdgeCount() {
+		return tau.length;
+	}
+
+	boolean isLazy() {
+		return lazy;
+	}
+
+	double getRawTau(int e) {
+		return tau[e];
+	}
+
+	void setRawTau(int e, double value) {
+		tau[e] = value;
+		if (!lazy) {
+			pre[e] = getChoice(value, eta[e]);
+		}
+	}
+
+	int getStamp(int e) {
+		return stamp[e];
+	}
+
+	void setStamp(int e, int value) {
+		stamp[e] = value;
+	}
+
+	double getScale() {
+		return scale;
+	}
+
+	double getFloor() {
+		return floor;
+	}
+
+	int getEpoch() {
+		return epoch;
+	}
+
+	double getDefaultTau() {
+		return defaultTau;
+	}
+
+	void setState(double scale, double floor, int epoch, double defaultTau) {
+		this.scale = scale;
+		this.floor = floor;
+		this.epoch = epoch;
+		this.defaultTau = defaultTau;
+	}
+
+	/**
+	 * @return the heuristic value (1 / distance ^ beta) of an edge
+	 */
+	protected double getEta(int i, int j) {
+		int d = distance.get(i, j);
+		return d != 0 ? pow(1.0 / d, beta) : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return the choice information of an edge given its pheromone trail and heuristic value
+	 */
+	protected double getChoice(double tau, double eta) {
+		return pow(tau, alpha) * eta;
+	}
+
+	/**
+	 * Slightly faster than Math.pow()
+	 */
+	static double pow(double b, int e) {
+		double r = b;
+		for (int i = 0; i < e - 1; i++) {
+			r *= b;
+		}
+		return r;
+	}
+}
@@ -0,0 +1,53 @@
+package paxby.combinatorics.metaheuristics;
+
+import paxby.combinatorics.tsp.Tour;
+
+/**
+ * Result of MetaHeuristic.solve(Limits): the best tour found and why the search stopped
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class SolveResult {
+
+	public enum StopReason {
+		ITERATIONS, // maximum number of iterations reached
+		DEADLINE, // time limit or deadline passed
+		TARGET_LENGTH, // a tour of at most the target length was found
+		CANCELLED // cancelled from another thread
+	}
+
+	private final Tour bestTour;
+	private final StopReason stopReason;
+	private final int iterations;
+	private final long elapsedNanos;
+
+	SolveResult(Tour bestTour, StopReason stopReason, int iterations, long elapsedNanos) {
+		this.bestTour = bestTour;
+		this.stopReason = stopReason;
+		this.iterations = iterations;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return best Tour found, or null if stopped before any tour was built
+	 */
+	public Tour getBestTour() {
+		return bestTour;
+	}
+
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * @return number of (completed) iterations of this solve
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+}
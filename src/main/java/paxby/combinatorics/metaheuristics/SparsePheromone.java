@@ -0,0 +1,110 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.util.Arrays;
+
+import paxby.combinatorics.tsp.CandidateList;
+import paxby.combinatorics.tsp.Distance;
+
+/**
+ * Pheromone trails stored for candidate-list edges only, with one entry per (undirected) edge. All other edges share a
+ * single default trail, which evaporates like any other trail (so that it tends to tau_min in MMAS). Deposits on edges
+ * that are not in the candidate list of either node are dropped: setTau on such an edge has no effect. Memory use and
+ * evaporation are O(n k) rather than O(n^2).
+ * 
+ * Edges are looked up by node pair (e.g. when depositing along a tour) in a small open-addressing hash table per node,
+ * holding the stored edges of the node in both directions, so that a lookup takes O(1) rather than a scan of the
+ * candidate lists.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class SparsePheromone extends Pheromone {
+
+	private static final int EMPTY = -1;
+
+	private final int[] edge; // edge of each candidate slot
+	private final int[] rowStart; // hash table of node i is at rowStart[i] .. rowStart[i + 1] - 1, a power of two
+	private final int[] table; // other node of the edge (or EMPTY) and the edge of each hash slot s, at 2 s and 2 s + 1
+
+	public SparsePheromone(Distance distance, CandidateList candidates, int alpha, int beta, boolean lazy) {
+		super(distance, candidates, alpha, beta, lazy);
+
+		int size = candidates.getSize();
+
+		// the edges of a node are those in its own candidate list and in the lists that contain it
+		int[] degree = new int[size];
+		for (int i = 0; i < size; i++) {
+			for (int k = candidates.getStart(i); k < candidates.getEnd(i); k++) {
+				degree[i]++;
+				degree[candidates.getCandidate(k)]++;
+			}
+		}
+
+		// at most half full, so that probes are short and always reach an empty slot
+		rowStart = new int[size + 1];
+		for (int i = 0; i < size; i++) {
+			rowStart[i + 1] = rowStart[i] + (degree[i] == 0 ? 1 : Integer.highestOneBit(2 * degree[i] - 1) << 1);
+		}
+		table = new int[2 * rowStart[size]];
+		Arrays.fill(table, EMPTY);
+
+		edge = new int[candidates.getTotal()];
+		int edges = 0;
+
+		// an edge in the candidate lists of both its nodes is stored once
+		for (int i = 0; i < size; i++) {
+			for (int k = candidates.getStart(i); k < candidates.getEnd(i); k++) {
+				int j = candidates.getCandidate(k);
+				int e = getEdge(i, j);
+				if (e < 0) {
+					e = edges++;
+					put(i, j, e);
+					put(j, i, e);
+				}
+				edge[k] = e;
+			}
+		}
+
+		initialise(edges, edge);
+
+		for (int i = 0; i < size; i++) {
+			for (int k = candidates.getStart(i); k < candidates.getEnd(i); k++) {
+				setEta(edge[k], getEta(i, candidates.getCandidate(k)));
+			}
+		}
+	}
+
+	/**
+	 * @return the first slot to probe for node j in the hash table of node i
+	 */
+	private int getHome(int i, int j) {
+		int mask = rowStart[i + 1] - rowStart[i] - 1;
+		return rowStart[i] + ((j * 0x9E3779B9) >>> 16 & mask);
+	}
+
+	/**
+	 * Add an edge to the hash table of node i
+	 */
+	private void put(int i, int j, int e) {
+		int start = rowStart[i];
+		int mask = rowStart[i + 1] - start - 1;
+		int s = getHome(i, j);
+		while (table[2 * s] != EMPTY) {
+			s = start + (s - start + 1 & mask);
+		}
+		table[2 * s] = j;
+		table[2 * s + 1] = e;
+	}
+
+	@Override
+	protected int getEdge(int i, int j) {
+		int start = rowStart[i];
+		int mask = rowStart[i + 1] - start - 1;
+		for (int s = getHome(i, j); table[2 * s] != EMPTY; s = start + (s - start + 1 & mask)) {
+			if (table[2 * s] == j) {
+				return table[2 * s + 1];
+			}
+		}
+		return -1;
+	}
+}
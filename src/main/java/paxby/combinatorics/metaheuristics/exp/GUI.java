@@ -12,7 +12,7 @@ import java.awt.RenderingHints;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
-import paxby.combinatorics.metaheuristics.AS;
+import paxby.combinatorics.metaheuristics.AsyncDispatcher;
 import paxby.combinatorics.metaheuristics.MetaHeuristic;
 import paxby.combinatorics.metaheuristics.MetaHeuristicEventListener;
 import paxby.combinatorics.tsp.Node;
@@ -20,7 +20,8 @@ import paxby.combinatorics.tsp.TSP;
 import paxby.combinatorics.tsp.Tour;
 
 /**
- * A graphical representation of the TSP and current best tour
+ * A graphical representation of the TSP and current best tour. Events are received from an AsyncDispatcher, and the
+ * status bar shows the latest snapshot, so that painting never reads the state of the running search.
  * 
  * @author Petter Axby
  * 
@@ -38,10 +39,10 @@ public class GUI extends JPanel implements MetaHeuristicEventListener {
 
 	private final StatusBar statusBar = new StatusBar();
 
-	private final MetaHeuristic metaHeuristic;
+	private final AsyncDispatcher dispatcher;
 	private final TSP tsp;
-	private Tour tour;
-	private int iteration;
+	private volatile Tour tour;
+	private volatile int iteration;
 
 	private class StatusBar extends JPanel {
 
@@ -58,22 +59,32 @@ public class GUI extends JPanel implements MetaHeuristicEventListener {
 			g.setFont(FONT);
 
 			StringBuilder string = new StringBuilder("Iteration " + iteration);
+			Tour tour = GUI.this.tour;
 
 			if (tour != null) {
 				string.append(", " + "tour length: " + Integer.toString(tour.getLength()));
 			}
 
-			if (metaHeuristic instanceof AS) {
-				string.append(", branching factor = "
-						+ String.format("%.5f", ((AS) metaHeuristic).getBranchingFactor()));
+			MetaHeuristic.Snapshot snapshot = dispatcher.getSnapshot();
+
+			if (snapshot != null && !Double.isNaN(snapshot.getBranchingFactor())) {
+				string.append(", branching factor = " + String.format("%.5f", snapshot.getBranchingFactor()));
 			}
 			g.drawString(string.toString(), 10, getHeight() - 7);
 		}
 	}
 
-	public GUI(MetaHeuristic metaHeuristic) {
+	/**
+	 * Create the GUI and register it as a listener of the dispatcher
+	 * 
+	 * @param metaHeuristic
+	 *            the metaheuristic
+	 * @param dispatcher
+	 *            dispatcher of the events of the metaheuristic
+	 */
+	public GUI(MetaHeuristic metaHeuristic, AsyncDispatcher dispatcher) {
 
-		this.metaHeuristic = metaHeuristic;
+		this.dispatcher = dispatcher;
 		tsp = metaHeuristic.getTSP();
 
 		setBackground(Color.WHITE);
@@ -102,6 +113,8 @@ public class GUI extends JPanel implements MetaHeuristicEventListener {
 		frame.pack();
 		frame.setResizable(true);
 		frame.setVisible(true);
+
+		dispatcher.addListener(this);
 	}
 
 	@Override
@@ -127,7 +140,7 @@ public class GUI extends JPanel implements MetaHeuristicEventListener {
 			}
 		}
 
-		Tour bestTour = metaHeuristic.getBestTour();
+		Tour bestTour = tour;
 
 		if (bestTour != null) {
 			g.setColor(COLOR_EDGE);
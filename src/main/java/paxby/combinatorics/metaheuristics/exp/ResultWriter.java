@@ -0,0 +1,106 @@
+package paxby.combinatorics.metaheuristics.exp;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes the results of RunComparison as they arrive, one record per line and flushed after each record, so that the
+ * file can be followed while an experiment is running. Files ending in .json get one JSON object per line; other files
+ * get CSV with a header line. Each run gives a "run" record; each bean on each instance gives a "summary" record at the
+ * end, in which length is the mean length and seconds and iterations per second are means over the runs.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class ResultWriter {
+
+	private static final String CSV_HEADER = "record,instance,bean,run,seed,length,sd,iterations,seconds,iterations_per_second";
+
+	private final Writer out;
+	private final boolean json;
+
+	/**
+	 * @param fileName
+	 *            output file, overwritten if it exists
+	 * @throws IOException
+	 *             Unable to create the file
+	 */
+	public ResultWriter(String fileName) throws IOException {
+		out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8));
+		json = fileName.toLowerCase(Locale.ROOT).endsWith(".json");
+
+		if (!json) {
+			writeLine(CSV_HEADER);
+		}
+	}
+
+	/**
+	 * Write the result of a single run
+	 */
+	public void writeRun(RunComparison.Run run) throws IOException {
+		if (json) {
+			writeLine(String.format(Locale.ROOT,
+					"{\"record\":\"run\",\"instance\":%s,\"bean\":%s,\"run\":%d,\"seed\":%d,\"length\":%d,"
+							+ "\"iterations\":%d,\"seconds\":%.3f,\"iterationsPerSecond\":%.2f}",
+					quote(run.getInstance()), quote(run.getBean()), run.getRun(), run.getSeed(), run.getLength(),
+					run.getIterations(), run.getSeconds(), run.getIterationsPerSecond()));
+		} else {
+			writeLine(String.format(Locale.ROOT, "run,%s,%s,%d,%d,%d,,%d,%.3f,%.2f", escape(run.getInstance()),
+					escape(run.getBean()), run.getRun(), run.getSeed(), run.getLength(), run.getIterations(),
+					run.getSeconds(), run.getIterationsPerSecond()));
+		}
+	}
+
+	/**
+	 * Write the summary of the runs of a bean on an instance
+	 */
+	public void writeSummary(String instance, String bean, int runs, double mean, double sd, int iterations,
+			double seconds, double iterationsPerSecond) throws IOException {
+		if (json) {
+			writeLine(String.format(Locale.ROOT,
+					"{\"record\":\"summary\",\"instance\":%s,\"bean\":%s,\"runs\":%d,\"mean\":%.1f,\"sd\":%.1f,"
+							+ "\"iterations\":%d,\"seconds\":%.3f,\"iterationsPerSecond\":%.2f}",
+					quote(instance), quote(bean), runs, mean, sd, iterations, seconds, iterationsPerSecond));
+		} else {
+			writeLine(String.format(Locale.ROOT, "summary,%s,%s,%d,,%.1f,%.1f,%d,%.3f,%.2f", escape(instance),
+					escape(bean), runs, mean, sd, iterations, seconds, iterationsPerSecond));
+		}
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void writeLine(String line) throws IOException {
+		out.write(line);
+		out.write('\n');
+		out.flush();
+	}
+
+	private static String quote(String s) {
+		StringBuilder b = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				b.append('\\').append(c);
+			} else if (c < 0x20) {
+				b.append(String.format("\\u%04x", (int) c));
+			} else {
+				b.append(c);
+			}
+		}
+		return b.append('"').toString();
+	}
+
+	private static String escape(String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+			return s;
+		}
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+}
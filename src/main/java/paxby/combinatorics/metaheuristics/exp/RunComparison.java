@@ -1,14 +1,36 @@
 package paxby.combinatorics.metaheuristics.exp;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.support.FileSystemXmlApplicationContext;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.core.io.FileSystemResource;
 
 import paxby.combinatorics.metaheuristics.*;
+import paxby.combinatorics.tsp.TSP;
 
 /**
- * Compares performance of various meta-heuristics
+ * Compares performance of various meta-heuristics. The beans listed in the "test" bean of the configuration are run a
+ * number of times on each instance, spread over a pool of worker threads. Run i is seeded with seed + i, for every bean
+ * and instance, so that results are reproducible and beans are compared on the same random streams. Results are
+ * written as they finish (see ResultWriter), and mean/sd of the tour lengths, mean wall time and iterations per second
+ * of each bean are printed at the end.
+ * 
+ * Usage: RunComparison [-config run.xml] [-threads n] [-tests n] [-iterations n] [-seed n] [-output file.csv|file.json]
+ * [instance ...]
+ * 
+ * Instances replace the "tsp" bean of the configuration; if none are given, the configured "tsp" bean is used.
  * 
  * @author Petter Axby
  * 
@@ -18,35 +40,235 @@ public class RunComparison {
 	private static final int TESTS = 50;
 	private static final int ITERATIONS = 100;
 
-	ApplicationContext context = new FileSystemXmlApplicationContext("run.xml");
+	private final String configFile;
+	private int tests = TESTS;
+	private int iterations = ITERATIONS;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int seed = 1;
+	private List<String> instances = new ArrayList<String>();
+	private ResultWriter writer;
+
+	/**
+	 * @param configFile
+	 *            Spring configuration, with a "test" bean listing the names of the (prototype) metaheuristic beans
+	 */
+	public RunComparison(String configFile) {
+		this.configFile = configFile;
+	}
 
-	private int[] Test(String bean, int tests, int iterations) {
+	/**
+	 * Result of a single run
+	 */
+	public static class Run {
 
-		int[] lengths = new int[tests];
+		private final String instance, bean;
+		private final int run, seed, length, iterations;
+		private final long nanos; // wall time of solve
 
-		for (int i = 0; i < tests; i++) {
-			MetaHeuristic meta = (MetaHeuristic) context.getBean(bean);
-			lengths[i] = meta.solve(iterations).getLength();
+		Run(String instance, String bean, int run, int seed, int length, int iterations, long nanos) {
+			this.instance = instance;
+			this.bean = bean;
+			this.run = run;
+			this.seed = seed;
+			this.length = length;
+			this.iterations = iterations;
+			this.nanos = nanos;
+		}
+
+		public String getInstance() {
+			return instance;
+		}
+
+		public String getBean() {
+			return bean;
+		}
+
+		public int getRun() {
+			return run;
 		}
 
-		return lengths;
+		public int getSeed() {
+			return seed;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		public int getIterations() {
+			return iterations;
+		}
+
+		public double getSeconds() {
+			return nanos / 1e9;
+		}
+
+		public double getIterationsPerSecond() {
+			return nanos == 0 ? 0 : iterations / getSeconds();
+		}
 	}
 
-	private void testAll() {
+	/**
+	 * Run all tests and print a summary of each bean on each instance
+	 * 
+	 * @return results of all runs, grouped by instance and bean
+	 */
+	public Map<String, List<Run>> testAll() throws IOException {
 
-		System.out.println("Tests:        " + TESTS);
-		System.out.println("Iterations:   " + ITERATIONS);
+		System.out.println("Tests:        " + tests);
+		System.out.println("Iterations:   " + iterations);
+		System.out.println("Threads:      " + threads);
 		System.out.println();
 
-		@SuppressWarnings("unchecked")
-		List<String> beans = (List<String>) context.getBean("test");
+		List<GenericXmlApplicationContext> contexts = new ArrayList<GenericXmlApplicationContext>();
+		List<String> names = new ArrayList<String>();
+
+		if (instances.isEmpty()) {
+			contexts.add(createContext(null));
+			names.add(getName(contexts.get(0).getBean("tsp", TSP.class)));
+		}
+		for (String instance: instances) {
+			contexts.add(createContext(instance));
+			names.add(instance);
+		}
+
+		Map<String, List<Run>> results = new LinkedHashMap<String, List<Run>>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			CompletionService<Run> completion = new ExecutorCompletionService<Run>(executor);
+			int submitted = 0;
+
+			for (int c = 0; c < contexts.size(); c++) {
+
+				@SuppressWarnings("unchecked")
+				List<String> beans = (List<String>) contexts.get(c).getBean("test");
 
-		for (String bean : beans) {
-			System.out.print(String.format("%-13s", bean + ":"));
-			int[] result = Test(bean, TESTS, ITERATIONS);
-			System.out.println(String.format("mean = %.0f, sd = %.0f",
-					mean(result), sd(result)));
+				for (String bean: beans) {
+					results.put(key(names.get(c), bean), new ArrayList<Run>());
+				}
+				for (int i = 0; i < tests; i++) {
+					for (String bean: beans) {
+						completion.submit(new Test(contexts.get(c), names.get(c), bean, i));
+						submitted++;
+					}
+				}
+			}
+
+			for (int k = 0; k < submitted; k++) {
+				Run run = take(completion);
+				results.get(key(run.getInstance(), run.getBean())).add(run);
+				if (writer != null) {
+					writer.writeRun(run);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			for (GenericXmlApplicationContext context: contexts) {
+				context.close();
+			}
 		}
+
+		String instance = null;
+
+		for (List<Run> runs: results.values()) {
+
+			Run first = runs.get(0);
+
+			if (!first.getInstance().equals(instance)) {
+				instance = first.getInstance();
+				System.out.println(instance);
+			}
+
+			int[] lengths = new int[runs.size()];
+			double seconds = 0;
+			double iterationsPerSecond = 0;
+
+			for (int i = 0; i < runs.size(); i++) {
+				lengths[i] = runs.get(i).getLength();
+				seconds += runs.get(i).getSeconds() / runs.size();
+				iterationsPerSecond += runs.get(i).getIterationsPerSecond() / runs.size();
+			}
+
+			System.out.println(String.format("  %-13s", first.getBean() + ":")
+					+ String.format("mean = %.0f, sd = %.0f, time = %.2f s, %.1f iterations/s", mean(lengths),
+							sd(lengths), seconds, iterationsPerSecond));
+
+			if (writer != null) {
+				writer.writeSummary(first.getInstance(), first.getBean(), runs.size(), mean(lengths), sd(lengths),
+						iterations, seconds, iterationsPerSecond);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * A single run of a bean, created from the context by the worker thread, so that preprocessing is also parallel
+	 */
+	private class Test implements Callable<Run> {
+
+		private final GenericXmlApplicationContext context;
+		private final String instance, bean;
+		private final int run;
+
+		Test(GenericXmlApplicationContext context, String instance, String bean, int run) {
+			this.context = context;
+			this.instance = instance;
+			this.bean = bean;
+			this.run = run;
+		}
+
+		@Override
+		public Run call() {
+			MetaHeuristic meta = (MetaHeuristic) context.getBean(bean);
+			meta.setSeed(seed + run);
+
+			long start = System.nanoTime();
+			int length = meta.solve(iterations).getLength();
+			long nanos = System.nanoTime() - start;
+
+			return new Run(instance, bean, run, seed + run, length, meta.getIteration(), nanos);
+		}
+	}
+
+	/**
+	 * Load the configuration, replacing the "tsp" bean by the given TSPLIB file
+	 */
+	private GenericXmlApplicationContext createContext(String instance) {
+
+		GenericXmlApplicationContext context = new GenericXmlApplicationContext();
+		context.load(new FileSystemResource(configFile));
+
+		if (instance != null) {
+			GenericBeanDefinition tsp = new GenericBeanDefinition();
+			tsp.setBeanClass(TSP.class);
+			tsp.getConstructorArgumentValues().addGenericArgumentValue(instance);
+			context.registerBeanDefinition("tsp", tsp);
+		}
+		context.refresh();
+		return context;
+	}
+
+	private static Run take(CompletionService<Run> completion) {
+		try {
+			return completion.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running tests", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Unable to run test", e.getCause());
+		}
+	}
+
+	private static String getName(TSP tsp) {
+		return tsp.getName() == null ? "tsp" : tsp.getName();
+	}
+
+	private static String key(String instance, String bean) {
+		return instance + "\n" + bean;
 	}
 
 	public static double mean(int[] arr) {
@@ -70,7 +292,79 @@ public class RunComparison {
 		return Math.sqrt(var(arr));
 	}
 
-	public static void main(String args[]) {
-		new RunComparison().testAll();
+	public void setTests(int tests) {
+		this.tests = tests;
+	}
+
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public void setSeed(int seed) {
+		this.seed = seed;
+	}
+
+	public void setInstances(List<String> instances) {
+		this.instances = instances;
+	}
+
+	public void setWriter(ResultWriter writer) {
+		this.writer = writer;
+	}
+
+	public static void main(String args[]) throws IOException {
+
+		String configFile = "run.xml";
+		String output = null;
+		List<String> instances = new ArrayList<String>();
+		Map<String, Integer> options = new LinkedHashMap<String, Integer>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-config") && i + 1 < args.length) {
+				configFile = args[++i];
+			} else if (args[i].equals("-output") && i + 1 < args.length) {
+				output = args[++i];
+			} else if (Arrays.asList("-threads", "-tests", "-iterations", "-seed").contains(args[i])
+					&& i + 1 < args.length) {
+				options.put(args[i], Integer.parseInt(args[++i]));
+			} else if (args[i].startsWith("-")) {
+				System.err.println("Usage: RunComparison [-config run.xml] [-threads n] [-tests n] [-iterations n] "
+						+ "[-seed n] [-output file.csv|file.json] [instance ...]");
+				System.exit(1);
+			} else {
+				instances.add(args[i]);
+			}
+		}
+
+		RunComparison comparison = new RunComparison(configFile);
+		comparison.setInstances(instances);
+
+		if (options.containsKey("-threads")) {
+			comparison.setThreads(options.get("-threads"));
+		}
+		if (options.containsKey("-tests")) {
+			comparison.setTests(options.get("-tests"));
+		}
+		if (options.containsKey("-iterations")) {
+			comparison.setIterations(options.get("-iterations"));
+		}
+		if (options.containsKey("-seed")) {
+			comparison.setSeed(options.get("-seed"));
+		}
+
+		ResultWriter writer = output == null ? null : new ResultWriter(output);
+		comparison.setWriter(writer);
+
+		try {
+			comparison.testAll();
+		} finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
 	}
 }
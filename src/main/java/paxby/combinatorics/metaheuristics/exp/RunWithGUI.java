@@ -1,25 +1,42 @@
 package paxby.combinatorics.metaheuristics.exp;
 
+import java.io.IOException;
+
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.FileSystemXmlApplicationContext;
 
+import paxby.combinatorics.metaheuristics.AS;
+import paxby.combinatorics.metaheuristics.AsyncDispatcher;
+import paxby.combinatorics.metaheuristics.Checkpoint;
 import paxby.combinatorics.metaheuristics.MetaHeuristic;
 
 /**
- * Runs solve() using GUI
+ * Runs solve() using GUI. Arguments: bean (default "default") and, optionally, a checkpoint file, from which an ant
+ * colony resumes if it exists, and which is written every 100 iterations.
  * 
  * @author Petter Axby
  * 
  */
 public class RunWithGUI {
 
-	public static void main(String args[]) {
+	private static final int CHECKPOINT_INTERVAL = 100;
+
+	public static void main(String args[]) throws IOException {
 
 		ApplicationContext context = new FileSystemXmlApplicationContext("config.xml");
 
 		MetaHeuristic meta = (MetaHeuristic) context.getBean(args.length > 0 ? args[0] : "default");
-		GUI gui = new GUI(meta);
-		meta.addListener(gui);
+
+		if (args.length > 1) {
+			Checkpoint checkpoint = new Checkpoint(args[1]);
+			AS as = (AS) meta;
+			if (checkpoint.restore(as)) {
+				System.out.println("Resumed at iteration " + as.getIteration());
+			}
+			as.setCheckpoint(checkpoint, CHECKPOINT_INTERVAL);
+		}
+
+		new GUI(meta, new AsyncDispatcher(meta, 1));
 		meta.solve();
 	}
 }
@@ -0,0 +1,227 @@
+package paxby.combinatorics.tsp;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact representation of the candidate lists of all nodes. The candidates of node i are stored, in order, in slots
+ * getStart(i) to getEnd(i) - 1 of a single flat array, together with their distance to node i.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class CandidateList {
+
+	private final int[] offset; // candidates of node i are stored in slots offset[i] .. offset[i + 1] - 1
+	private final int[] candidate;
+	private final int[] distance;
+
+	/**
+	 * @param offset
+	 *            start slot of each node, followed by the total number of slots (length = number of nodes + 1)
+	 * @param candidate
+	 *            node index of the candidate in each slot
+	 * @param distance
+	 *            distance from the node to the candidate in each slot
+	 */
+	public CandidateList(int[] offset, int[] candidate, int[] distance) {
+		this.offset = offset;
+		this.candidate = candidate;
+		this.distance = distance;
+	}
+
+	/**
+	 * Creates the candidate lists from a neighbour map
+	 * 
+	 * @param nodes
+	 *            nodes of the TSP, in index order
+	 * @param map
+	 *            neighbour map, as returned by a NeighbourStrategy
+	 */
+	public CandidateList(List<Node> nodes, Map<Node, List<Node>> map) {
+
+		offset = new int[nodes.size() + 1];
+
+		for (Node node: nodes) {
+			offset[node.getIndex() + 1] = map.get(node).size();
+		}
+		for (int i = 0; i < nodes.size(); i++) {
+			offset[i + 1] += offset[i];
+		}
+
+		candidate = new int[offset[nodes.size()]];
+		distance = new int[offset[nodes.size()]];
+
+		for (Node node: nodes) {
+			int k = offset[node.getIndex()];
+			for (Node neighbour: map.get(node)) {
+				candidate[k] = neighbour.getIndex();
+				distance[k] = node.distToNint(neighbour);
+				k++;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int getSize() {
+		return offset.length - 1;
+	}
+
+	/**
+	 * @return the total number of candidates (slots) of all nodes
+	 */
+	public int getTotal() {
+		return offset[offset.length - 1];
+	}
+
+	/**
+	 * @return the first slot of the candidates of a node
+	 * @param i
+	 *            index of node
+	 */
+	public int getStart(int i) {
+		return offset[i];
+	}
+
+	/**
+	 * @return the slot following the last candidate of a node
+	 * @param i
+	 *            index of node
+	 */
+	public int getEnd(int i) {
+		return offset[i + 1];
+	}
+
+	/**
+	 * @return the number of candidates of a node
+	 * @param i
+	 *            index of node
+	 */
+	public int getCount(int i) {
+		return offset[i + 1] - offset[i];
+	}
+
+	/**
+	 * @return the index of the candidate node in a slot
+	 * @param k
+	 *            slot
+	 */
+	public int getCandidate(int k) {
+		return candidate[k];
+	}
+
+	/**
+	 * @return the distance to the candidate node in a slot
+	 * @param k
+	 *            slot
+	 */
+	public int getDistance(int k) {
+		return distance[k];
+	}
+
+	/**
+	 * Returns the candidate lists as a (read-only) neighbour map, backed by this object
+	 * 
+	 * @param nodes
+	 *            nodes of the TSP, in index order
+	 * @return neighbour map
+	 */
+	public Map<Node, List<Node>> asMap(final List<Node> nodes) {
+
+		return new AbstractMap<Node, List<Node>>() {
+
+			@Override
+			public List<Node> get(Object key) {
+				if (!containsKey(key)) {
+					return null;
+				}
+				return getList(nodes, ((Node) key).getIndex());
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				if (!(key instanceof Node)) {
+					return false;
+				}
+				int i = ((Node) key).getIndex();
+				return i >= 0 && i < nodes.size() && nodes.get(i) == key;
+			}
+
+			@Override
+			public int size() {
+				return nodes.size();
+			}
+
+			@Override
+			public Set<Map.Entry<Node, List<Node>>> entrySet() {
+
+				return new AbstractSet<Map.Entry<Node, List<Node>>>() {
+
+					@Override
+					public Iterator<Map.Entry<Node, List<Node>>> iterator() {
+
+						return new Iterator<Map.Entry<Node, List<Node>>>() {
+
+							private int i = 0;
+
+							@Override
+							public boolean hasNext() {
+								return i < nodes.size();
+							}
+
+							@Override
+							public Map.Entry<Node, List<Node>> next() {
+								if (!hasNext()) {
+									throw new NoSuchElementException();
+								}
+								Node node = nodes.get(i);
+								List<Node> list = getList(nodes, i++);
+								return new AbstractMap.SimpleImmutableEntry<Node, List<Node>>(node, list);
+							}
+
+							@Override
+							public void remove() {
+								throw new UnsupportedOperationException();
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+						return nodes.size();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Returns the candidate list of a node as a (read-only) list of nodes, backed by this object
+	 */
+	private List<Node> getList(final List<Node> nodes, final int i) {
+
+		return new AbstractList<Node>() {
+
+			@Override
+			public Node get(int c) {
+				if (c < 0 || c >= size()) {
+					throw new IndexOutOfBoundsException("Index: " + c + ", Size: " + size());
+				}
+				return nodes.get(candidate[offset[i] + c]);
+			}
+
+			@Override
+			public int size() {
+				return getCount(i);
+			}
+		};
+	}
+}
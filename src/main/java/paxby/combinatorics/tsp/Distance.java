@@ -0,0 +1,19 @@
+package paxby.combinatorics.tsp;
+
+/**
+ * Provides the distance between two nodes of a TSP
+ * 
+ * @author Petter Axby
+ * 
+ */
+public interface Distance {
+
+	/**
+	 * @return the distance between two nodes
+	 * @param i
+	 *            index of first node
+	 * @param j
+	 *            index of second node
+	 */
+	int get(int i, int j);
+}
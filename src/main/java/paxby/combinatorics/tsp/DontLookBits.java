@@ -0,0 +1,68 @@
+package paxby.combinatorics.tsp;
+
+/**
+ * Don't-look bits, kept as a FIFO queue of the nodes whose bit is off (active nodes), so that local search only
+ * looks at nodes near recent changes rather than scanning all nodes.
+ * 
+ * @author Petter Axby
+ * 
+ */
+class DontLookBits {
+
+	private final int[] queue;
+	private final boolean[] active;
+	private int head, count;
+
+	DontLookBits(int size) {
+		queue = new int[size];
+		active = new boolean[size];
+	}
+
+	/**
+	 * Turn the bit of a node off, i.e. queue it to be looked at
+	 */
+	void activate(int i) {
+		if (!active[i]) {
+			active[i] = true;
+			queue[(head + count++) % queue.length] = i;
+		}
+	}
+
+	/**
+	 * Turn the bits of all nodes off
+	 */
+	void activateAll() {
+		for (int i = 0; i < queue.length; i++) {
+			activate(i);
+		}
+	}
+
+	/**
+	 * Turn the bits of the end points of all edges of a tour that are not in a reference tour off
+	 */
+	void activateChanged(Tour tour, Tour reference) {
+		for (int i = 0; i < queue.length; i++) {
+			int j = tour.getNext(i);
+			if (reference.getNext(i) != j && reference.getPrev(i) != j) {
+				activate(i);
+				activate(j);
+			}
+		}
+	}
+
+	/**
+	 * Remove the first node from the queue and turn its bit on
+	 * 
+	 * @return index of node, or -1 if all bits are on
+	 */
+	int next() {
+		if (count == 0) {
+			return -1;
+		}
+		int i = queue[head];
+		head = (head + 1) % queue.length;
+		count--;
+		active[i] = false;
+		return i;
+	}
+}
@@ -0,0 +1,47 @@
+package paxby.combinatorics.tsp;
+
+import java.util.List;
+
+/**
+ * Euclidean distances computed on demand from the coordinates and rounded to the nearest integer (TSPLIB EUC_2D).
+ * Needs O(n) memory only.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class EuclideanDistance implements Distance {
+
+	private final double[] x, y;
+
+	/**
+	 * @param x
+	 *            x coordinate of each node (shared, not copied)
+	 * @param y
+	 *            y coordinate of each node (shared, not copied)
+	 */
+	public EuclideanDistance(double[] x, double[] y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	public EuclideanDistance(List<Node> nodes) {
+
+		x = new double[nodes.size()];
+		y = new double[nodes.size()];
+
+		for (int i = 0; i < nodes.size(); i++) {
+			x[i] = nodes.get(i).getX();
+			y[i] = nodes.get(i).getY();
+		}
+	}
+
+	/**
+	 * Same as Node.distToNint
+	 */
+	@Override
+	public int get(int i, int j) {
+		double dx = x[j] - x[i];
+		double dy = y[j] - y[i];
+		return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+	}
+}
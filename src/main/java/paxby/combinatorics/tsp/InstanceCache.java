@@ -0,0 +1,390 @@
+package paxby.combinatorics.tsp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A directory of preprocessed instances in a compact binary format, so that repeated runs on the same instance skip
+ * parsing and preprocessing. Three kinds of files are stored:
+ * <ul>
+ * <li>coordinates, keyed by the SHA-1 hash of the content of the TSPLIB file</li>
+ * <li>candidate lists, keyed by the SHA-1 hash of the coordinates plus the NeighbourStrategy and size</li>
+ * <li>the length of the NN tour improved by 2-opt (used to initialise pheromone trails), keyed as candidate lists</li>
+ * </ul>
+ * Files are memory-mapped when loaded and written atomically, so several processes may share a cache. Files that
+ * cannot be read, or whose content is not consistent (e.g. lengths beyond the end of the file), are ignored and
+ * recomputed.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class InstanceCache {
+
+	private static final int MAGIC = 0x54535043; // "TSPC"
+	private static final int VERSION = 1;
+	private static final int NODES = 1, CANDIDATES = 2, LENGTH = 3; // kinds of file
+
+	private final File directory;
+	private final Map<TSP, String> keys = new WeakHashMap<TSP, String>(); // instance key of each TSP
+
+	/**
+	 * @param directory
+	 *            cache directory, created if it does not exist
+	 */
+	public InstanceCache(String directory) {
+		this.directory = new File(directory);
+		this.directory.mkdirs();
+	}
+
+	/**
+	 * Loads a TSPLIB file, from the cache if it has been loaded before
+	 * 
+	 * @param fileName
+	 *            TSPLIB file
+	 * @return the TSP
+	 * @throws UnsupportedFileException
+	 *             Type is not supported (must be TSP + EUC_2D or ATT)
+	 * @throws FileNotFoundException
+	 *             File not found
+	 * @throws InvalidFileException
+	 *             Unable to parse file
+	 */
+	public TSP load(String fileName) throws UnsupportedFileException, FileNotFoundException, InvalidFileException {
+
+		File file;
+
+		try {
+			file = getFile(hashFile(fileName), ".nodes");
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new InvalidFileException("Unable to read file " + fileName, e);
+		}
+
+		List<Node> nodes = null;
+		byte[] name = null;
+		ByteBuffer in = map(file, NODES);
+
+		if (in != null) {
+			try {
+				name = new byte[readLength(in, 1)];
+				in.get(name);
+				nodes = readNodes(in);
+			} catch (BufferUnderflowException e) {
+				nodes = null;
+			}
+		}
+
+		if (nodes != null) {
+			return new TSP(new String(name, StandardCharsets.UTF_8), nodes);
+		}
+
+		TSP tsp = new TSP(fileName);
+		name = (tsp.getName() == null ? "" : tsp.getName()).getBytes(StandardCharsets.UTF_8);
+		int size = tsp.getSize();
+
+		ByteBuffer out = ByteBuffer.allocate(12 + 4 + name.length + 4 + 16 * size);
+		writeHeader(out, NODES);
+		out.putInt(name.length);
+		out.put(name);
+		out.putInt(size);
+		for (Node node: tsp.getNodes()) {
+			out.putDouble(node.getX());
+		}
+		for (Node node: tsp.getNodes()) {
+			out.putDouble(node.getY());
+		}
+		write(file, out);
+		return tsp;
+	}
+
+	/**
+	 * Returns the candidate lists of a TSP, from the cache if they have been computed before
+	 * 
+	 * @param tsp
+	 *            the TSP
+	 * @param strategy
+	 *            strategy used to compute the candidate lists
+	 * @param size
+	 *            number of candidates of each node
+	 * @return candidate lists
+	 */
+	public CandidateList getCandidateList(TSP tsp, NeighbourStrategy strategy, int size) {
+
+		File file = getFile(getKey(tsp), strategy.getClass().getName() + "-" + size + ".candidates");
+		ByteBuffer in = map(file, CANDIDATES);
+
+		if (in != null) {
+			try {
+				if (in.getInt() == tsp.getSize()) {
+					CandidateList list = readCandidateList(in, tsp.getSize());
+					if (list != null) {
+						return list;
+					}
+				}
+			} catch (BufferUnderflowException e) {
+				// recompute
+			}
+		}
+
+		CandidateList list = strategy.getCandidateList(tsp.getNodes(), size, tsp.getDistance());
+		int total = list.getTotal();
+
+		ByteBuffer out = ByteBuffer.allocate(12 + 4 + 4 * (tsp.getSize() + 1) + 8 * total);
+		writeHeader(out, CANDIDATES);
+		out.putInt(tsp.getSize());
+		for (int i = 0; i < tsp.getSize(); i++) {
+			out.putInt(list.getStart(i));
+		}
+		out.putInt(total);
+		for (int k = 0; k < total; k++) {
+			out.putInt(list.getCandidate(k));
+		}
+		for (int k = 0; k < total; k++) {
+			out.putInt(list.getDistance(k));
+		}
+		write(file, out);
+		return list;
+	}
+
+	/**
+	 * Returns the cached length of the NN tour of a TSP improved by 2-opt using the given candidate lists
+	 * 
+	 * @param tsp
+	 *            the TSP
+	 * @param strategy
+	 *            strategy of the candidate lists
+	 * @param size
+	 *            number of candidates of each node
+	 * @return the length, or -1 if not cached
+	 */
+	public int getNNTourLength(TSP tsp, NeighbourStrategy strategy, int size) {
+		ByteBuffer in = map(getLengthFile(tsp, strategy, size), LENGTH);
+		return in == null || in.remaining() < 4 ? -1 : in.getInt();
+	}
+
+	/**
+	 * Stores the length of the NN tour of a TSP improved by 2-opt using the given candidate lists
+	 */
+	public void putNNTourLength(TSP tsp, NeighbourStrategy strategy, int size, int length) {
+		ByteBuffer out = ByteBuffer.allocate(12 + 4);
+		writeHeader(out, LENGTH);
+		out.putInt(length);
+		write(getLengthFile(tsp, strategy, size), out);
+	}
+
+	/**
+	 * Reads the number of elements of an array which follows, checking that it fits in the rest of the file
+	 * 
+	 * @param bytes
+	 *            size of each element, or the total size of corresponding elements of arrays which follow
+	 * @throws BufferUnderflowException
+	 *             if the length is negative or too large, i.e. the file is corrupt
+	 */
+	private static int readLength(ByteBuffer in, int bytes) {
+		int length = in.getInt();
+		if (length < 0 || (long) length * bytes > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		return length;
+	}
+
+	private static List<Node> readNodes(ByteBuffer in) {
+
+		int size = readLength(in, 16);
+		double[] x = new double[size];
+		double[] y = new double[size];
+		in.asDoubleBuffer().get(x);
+		in.position(in.position() + 8 * size);
+		in.asDoubleBuffer().get(y);
+
+		List<Node> nodes = new ArrayList<Node>(size);
+		for (int i = 0; i < size; i++) {
+			nodes.add(new Node(i, x[i], y[i]));
+		}
+		return nodes;
+	}
+
+	/**
+	 * @return the candidate lists, or null if they are not valid for a TSP of the given size
+	 */
+	private static CandidateList readCandidateList(ByteBuffer in, int size) {
+
+		if (4L * (size + 1) > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+
+		int[] offset = new int[size + 1];
+		in.asIntBuffer().get(offset);
+		in.position(in.position() + 4 * offset.length);
+
+		if (offset[0] != 0) {
+			return null;
+		}
+		for (int i = 0; i < size; i++) {
+			if (offset[i + 1] < offset[i]) {
+				return null;
+			}
+		}
+
+		int total = offset[size];
+		if (8L * total > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+
+		int[] candidate = new int[total];
+		int[] distance = new int[total];
+		in.asIntBuffer().get(candidate);
+		in.position(in.position() + 4 * total);
+		in.asIntBuffer().get(distance);
+
+		for (int k = 0; k < total; k++) {
+			if (candidate[k] < 0 || candidate[k] >= size) {
+				return null;
+			}
+		}
+		return new CandidateList(offset, candidate, distance);
+	}
+
+	private File getLengthFile(TSP tsp, NeighbourStrategy strategy, int size) {
+		return getFile(getKey(tsp), strategy.getClass().getName() + "-" + size + ".length");
+	}
+
+	private File getFile(String key, String suffix) {
+		return new File(directory, key + (suffix.startsWith(".") ? "" : "-") + suffix);
+	}
+
+	/**
+	 * Returns the key of an instance: the SHA-1 hash of its coordinates
+	 */
+	private synchronized String getKey(TSP tsp) {
+
+		String key = keys.get(tsp);
+
+		if (key == null) {
+			MessageDigest digest = getDigest();
+			ByteBuffer buffer = ByteBuffer.allocate(16);
+
+			for (Node node: tsp.getNodes()) {
+				buffer.clear();
+				buffer.putDouble(node.getX());
+				buffer.putDouble(node.getY());
+				digest.update(buffer.array());
+			}
+			key = toHex(digest.digest());
+			keys.put(tsp, key);
+		}
+		return key;
+	}
+
+	private static String hashFile(String fileName) throws IOException {
+
+		MessageDigest digest = getDigest();
+		FileInputStream in = new FileInputStream(fileName);
+
+		try {
+			byte[] buffer = new byte[1 << 16];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest getDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 not available", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder s = new StringBuilder();
+		for (byte b: bytes) {
+			s.append(String.format("%02x", b));
+		}
+		return s.toString();
+	}
+
+	private static void writeHeader(ByteBuffer out, int kind) {
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		out.putInt(kind);
+	}
+
+	/**
+	 * Maps a cache file into memory
+	 * 
+	 * @return the content following the header, or null if the file does not exist or is not a valid file of the kind
+	 */
+	private static ByteBuffer map(File file, int kind) {
+
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try {
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			try {
+				MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+				if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+						|| buffer.getInt() != kind) {
+					return null;
+				}
+				return buffer;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a cache file via a temporary file, so that readers never see a partly written file. Failures are ignored,
+	 * as the content can always be recomputed.
+	 */
+	private static void write(File file, ByteBuffer content) {
+
+		try {
+			File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			try {
+				RandomAccessFile out = new RandomAccessFile(temp, "rw");
+				try {
+					content.flip();
+					while (content.hasRemaining()) {
+						out.getChannel().write(content);
+					}
+				} finally {
+					out.close();
+				}
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				temp.delete();
+			}
+		} catch (IOException e) {
+			// not cached
+		}
+	}
+}
@@ -10,7 +10,46 @@ public class InvalidFileException extends Exception {
 
 	private static final long serialVersionUID = 1L;
 
+	private final int line;
+	private final int column;
+
 	public InvalidFileException(String s) {
 		super(s);
+		line = 0;
+		column = 0;
+	}
+
+	public InvalidFileException(String s, Throwable cause) {
+		super(s, cause);
+		line = 0;
+		column = 0;
+	}
+
+	/**
+	 * @param s
+	 *            description of the error
+	 * @param line
+	 *            line of the error (starting from 1)
+	 * @param column
+	 *            column of the error (starting from 1)
+	 */
+	public InvalidFileException(String s, int line, int column) {
+		super(s + " at line " + line + ", column " + column);
+		this.line = line;
+		this.column = column;
+	}
+
+	/**
+	 * @return the line of the error, or 0 if unknown
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the column of the error, or 0 if unknown
+	 */
+	public int getColumn() {
+		return column;
 	}
 }
@@ -0,0 +1,379 @@
+package paxby.combinatorics.tsp;
+
+import java.util.List;
+
+/**
+ * A 2-d tree over the coordinates of a list of nodes, answering k-nearest-neighbour queries, optionally restricted to
+ * one of the four quadrants around the query node, and nearest-distance queries from arbitrary points. Queries do not
+ * modify the tree, and may run concurrently. Neighbours are ranked by their distance rounded to the nearest
+ * integer, and ties are broken by node index - i.e. the same order as sorting with NNComparator.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class KDTree {
+
+	public static final int ALL_QUADRANTS = -1;
+
+	private static final int BUCKET = 8; // maximum number of points in a leaf
+
+	final double[] x, y; // coordinates of each node
+	final int[] perm; // node indices, ordered such that each tree node covers a contiguous range
+
+	// tree nodes: range of perm covered, children (-1 for leaves), parent (-1 for the root) and bounding box
+	final int[] lo, hi, left, right, parent;
+	final double[] minX, minY, maxX, maxY;
+	final int[] leaf; // leaf containing each node
+	int treeSize;
+
+	/**
+	 * Builds the tree
+	 * 
+	 * @param nodes
+	 *            nodes, in index order
+	 */
+	public KDTree(List<Node> nodes) {
+
+		int size = nodes.size();
+
+		x = new double[size];
+		y = new double[size];
+		perm = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			x[i] = nodes.get(i).getX();
+			y[i] = nodes.get(i).getY();
+			perm[i] = i;
+		}
+
+		// leaves hold at least (BUCKET + 1) / 2 points
+		int capacity = 2 * (size / ((BUCKET + 1) / 2)) + 1;
+		lo = new int[capacity];
+		hi = new int[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		parent = new int[capacity];
+		leaf = new int[size];
+		minX = new double[capacity];
+		minY = new double[capacity];
+		maxX = new double[capacity];
+		maxY = new double[capacity];
+
+		if (size > 0) {
+			build(0, size, -1);
+		}
+	}
+
+	/**
+	 * Builds the subtree covering perm[from .. to - 1] and returns its index
+	 */
+	private int build(int from, int to, int up) {
+
+		int t = treeSize++;
+		lo[t] = from;
+		hi[t] = to;
+		left[t] = -1;
+		right[t] = -1;
+		parent[t] = up;
+
+		minX[t] = Double.POSITIVE_INFINITY;
+		minY[t] = Double.POSITIVE_INFINITY;
+		maxX[t] = Double.NEGATIVE_INFINITY;
+		maxY[t] = Double.NEGATIVE_INFINITY;
+
+		for (int k = from; k < to; k++) {
+			int i = perm[k];
+			minX[t] = Math.min(minX[t], x[i]);
+			minY[t] = Math.min(minY[t], y[i]);
+			maxX[t] = Math.max(maxX[t], x[i]);
+			maxY[t] = Math.max(maxY[t], y[i]);
+		}
+
+		if (to - from > BUCKET) {
+			// split at the median of the widest dimension
+			double[] coordinate = maxX[t] - minX[t] >= maxY[t] - minY[t] ? x : y;
+			int mid = (from + to) >>> 1;
+			select(coordinate, from, to - 1, mid);
+			left[t] = build(from, mid, t);
+			right[t] = build(mid, to, t);
+		} else {
+			for (int k = from; k < to; k++) {
+				leaf[perm[k]] = t;
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Partially sorts perm[from .. to] by coordinate such that position n holds the element it would hold if sorted
+	 */
+	private void select(double[] coordinate, int from, int to, int n) {
+
+		while (to > from) {
+			double pivot = coordinate[perm[(from + to) >>> 1]];
+			int i = from;
+			int j = to;
+
+			while (i <= j) {
+				while (coordinate[perm[i]] < pivot) {
+					i++;
+				}
+				while (coordinate[perm[j]] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int temp = perm[i];
+					perm[i++] = perm[j];
+					perm[j--] = temp;
+				}
+			}
+
+			if (n <= j) {
+				to = j;
+			} else if (n >= i) {
+				from = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the k nearest neighbours of a node
+	 * 
+	 * @param i
+	 *            index of node
+	 * @param k
+	 *            number of neighbours
+	 * @return indices of the (at most k) nearest nodes, nearest first
+	 */
+	public int[] getNearest(int i, int k) {
+		return getNearest(i, k, ALL_QUADRANTS);
+	}
+
+	/**
+	 * Returns the k nearest neighbours of a node within one of its quadrants. Quadrant 0 holds nodes with smaller x and
+	 * y, 1 smaller x and greater or equal y, 2 greater or equal x and smaller y, and 3 greater or equal x and y.
+	 * 
+	 * @param i
+	 *            index of node
+	 * @param k
+	 *            number of neighbours
+	 * @param quadrant
+	 *            quadrant (0-3) or ALL_QUADRANTS
+	 * @return indices of the (at most k) nearest nodes, nearest first
+	 */
+	public int[] getNearest(int i, int k, int quadrant) {
+
+		Heap heap = new Heap(Math.min(k, x.length));
+
+		if (heap.capacity > 0) {
+			search(0, i, quadrant, heap);
+		}
+		return heap.toSortedArray();
+	}
+
+	private void search(int t, int i, int quadrant, Heap heap) {
+
+		double px = x[i];
+		double py = y[i];
+
+		if (quadrant != ALL_QUADRANTS) {
+			boolean smallerX = quadrant < 2;
+			boolean smallerY = quadrant % 2 == 0;
+
+			if ((smallerX ? minX[t] >= px : maxX[t] < px) || (smallerY ? minY[t] >= py : maxY[t] < py)) {
+				return;
+			}
+		}
+
+		if (heap.isFull()) {
+			if ((int) (Math.sqrt(distanceSq(t, px, py)) + 0.5) > heap.worstDistance()) {
+				return;
+			}
+		}
+
+		if (left[t] < 0) {
+			for (int k = lo[t]; k < hi[t]; k++) {
+				int j = perm[k];
+
+				if (j == i || (quadrant != ALL_QUADRANTS && getQuadrant(i, j) != quadrant)) {
+					continue;
+				}
+
+				double dx = x[j] - px;
+				double dy = y[j] - py;
+				heap.offer((int) (Math.sqrt(dx * dx + dy * dy) + 0.5), j);
+			}
+		} else {
+			// visit the nearest child first
+			int l = left[t];
+			int r = right[t];
+
+			if (distanceSq(l, px, py) <= distanceSq(r, px, py)) {
+				search(l, i, quadrant, heap);
+				search(r, i, quadrant, heap);
+			} else {
+				search(r, i, quadrant, heap);
+				search(l, i, quadrant, heap);
+			}
+		}
+	}
+
+	/**
+	 * Returns the distance (exact, as Node.distTo) from a point to the nearest node
+	 * 
+	 * @param px
+	 *            x coordinate of the point
+	 * @param py
+	 *            y coordinate of the point
+	 * @param exclude
+	 *            index of a node to ignore (e.g. the node at the point), or -1
+	 * @return distance, or infinity if there are no other nodes
+	 */
+	public double getNearestDistance(double px, double py, int exclude) {
+		return treeSize == 0 ? Double.POSITIVE_INFINITY
+				: Math.sqrt(searchNearest(0, px, py, exclude, Double.POSITIVE_INFINITY));
+	}
+
+	/**
+	 * Returns the smaller of best and the squared distance from a point to the nearest node in a subtree
+	 */
+	private double searchNearest(int t, double px, double py, int exclude, double best) {
+
+		if (distanceSq(t, px, py) >= best) {
+			return best;
+		}
+
+		if (left[t] < 0) {
+			for (int k = lo[t]; k < hi[t]; k++) {
+				int j = perm[k];
+				double dx = x[j] - px;
+				double dy = y[j] - py;
+				double d = dx * dx + dy * dy;
+				if (d < best && j != exclude) {
+					best = d;
+				}
+			}
+			return best;
+		}
+
+		// visit the nearest child first
+		int l = left[t];
+		int r = right[t];
+
+		if (distanceSq(l, px, py) <= distanceSq(r, px, py)) {
+			best = searchNearest(l, px, py, exclude, best);
+			return searchNearest(r, px, py, exclude, best);
+		}
+		best = searchNearest(r, px, py, exclude, best);
+		return searchNearest(l, px, py, exclude, best);
+	}
+
+	/**
+	 * Returns the squared distance from a point to the bounding box of a tree node. It is a lower bound of the squared
+	 * distance (computed as in Node.distTo) to any node in the box.
+	 */
+	double distanceSq(int t, double px, double py) {
+		double dx = px < minX[t] ? minX[t] - px : (px > maxX[t] ? px - maxX[t] : 0);
+		double dy = py < minY[t] ? minY[t] - py : (py > maxY[t] ? py - maxY[t] : 0);
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Returns the quadrant of node j relative to node i
+	 */
+	private int getQuadrant(int i, int j) {
+		return (x[j] < x[i] ? 0 : 2) + (y[j] < y[i] ? 0 : 1);
+	}
+
+	/**
+	 * Bounded max-heap of (distance, index) pairs, keeping the k smallest
+	 */
+	private static class Heap {
+
+		private final int capacity;
+		private final int[] distance;
+		private final int[] index;
+		private int size;
+
+		Heap(int capacity) {
+			this.capacity = capacity;
+			distance = new int[capacity];
+			index = new int[capacity];
+		}
+
+		boolean isFull() {
+			return size == capacity;
+		}
+
+		int worstDistance() {
+			return distance[0];
+		}
+
+		/**
+		 * @return true if (d1, i1) ranks after (d2, i2)
+		 */
+		private static boolean after(int d1, int i1, int d2, int i2) {
+			return d1 > d2 || (d1 == d2 && i1 > i2);
+		}
+
+		void offer(int d, int i) {
+			if (size < capacity) {
+				int k = size++;
+				while (k > 0) {
+					int parent = (k - 1) / 2;
+					if (!after(d, i, distance[parent], index[parent])) {
+						break;
+					}
+					distance[k] = distance[parent];
+					index[k] = index[parent];
+					k = parent;
+				}
+				distance[k] = d;
+				index[k] = i;
+			} else if (after(distance[0], index[0], d, i)) {
+				siftDown(d, i);
+			}
+		}
+
+		/**
+		 * Replaces the root and restores the heap property
+		 */
+		private void siftDown(int d, int i) {
+			int k = 0;
+			while (true) {
+				int child = 2 * k + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && after(distance[child + 1], index[child + 1], distance[child], index[child])) {
+					child++;
+				}
+				if (!after(distance[child], index[child], d, i)) {
+					break;
+				}
+				distance[k] = distance[child];
+				index[k] = index[child];
+				k = child;
+			}
+			distance[k] = d;
+			index[k] = i;
+		}
+
+		/**
+		 * Empties the heap and returns the indices, nearest first
+		 */
+		int[] toSortedArray() {
+			int[] result = new int[size];
+			while (size > 0) {
+				result[size - 1] = index[0];
+				size--;
+				if (size > 0) {
+					siftDown(distance[size], index[size]);
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package paxby.combinatorics.tsp;
+
+/**
+ * Lin-Kernighan style variable-depth local search, built from sequential 2-opt moves (as in LK implementations on
+ * array-based tours). From a base node t1 with tour neighbour t2, the edge (t1, t2) is removed and a chain of moves
+ * is grown: each step adds an edge (t2, t3) to a candidate t3 of t2, removes the edge (t3, t4) that makes the tour a
+ * cycle again, and continues from t4, as long as the cumulative gain stays positive. The best tour along the chain is
+ * kept. The chain is at most maxDepth moves long; breadth alternatives are tried for the first move, and the best of
+ * breadth candidates (by the gain after removing (t3, t4)) is taken at deeper levels. Edges added in a chain are
+ * never removed in the same chain.
+ * 
+ * First improvement, using neighbour lists and don't-look bits. Apart from its working storage, allocated once per
+ * call, the search does not allocate.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class LinKernighan implements LocalSearch {
+
+	private int maxDepth = 10;
+	private int breadth = 5;
+
+	public LinKernighan() {
+	}
+
+	/**
+	 * @param maxDepth
+	 *            maximum number of 2-opt moves in a chain
+	 * @param breadth
+	 *            number of candidates considered at each step
+	 */
+	public LinKernighan(int maxDepth, int breadth) {
+		this.maxDepth = maxDepth;
+		this.breadth = breadth;
+	}
+
+	@Override
+	public void improve(Tour tour, CandidateList neighbours) {
+		improve(tour, neighbours, null);
+	}
+
+	@Override
+	public void improve(Tour tour, CandidateList neighbours, Tour reference) {
+
+		if (neighbours.getSize() < 8) {
+			new TwoOpt().improve(tour, neighbours);
+			return;
+		}
+
+		Search search = new Search(tour, neighbours);
+
+		if (reference == null) {
+			search.bits.activateAll();
+		} else {
+			search.bits.activateChanged(tour, reference);
+		}
+
+		int a;
+		while ((a = search.bits.next()) >= 0) {
+			if (search.improve(a)) {
+				search.bits.activate(a);
+			}
+		}
+	}
+
+	/**
+	 * Working storage of one call of improve
+	 */
+	private class Search {
+
+		private final Tour tour;
+		private final CandidateList neighbours;
+		private final Distance distance;
+		private final DontLookBits bits;
+
+		// per step of the current chain: the 2-opt move that undoes it, and the edge (t2, t3) it added
+		private final int[] undoFrom, undoTo;
+		private final int[] addedFrom, addedTo;
+
+		Search(Tour tour, CandidateList neighbours) {
+			this.tour = tour;
+			this.neighbours = neighbours;
+			distance = tour.getDistance();
+			bits = new DontLookBits(neighbours.getSize());
+			undoFrom = new int[maxDepth];
+			undoTo = new int[maxDepth];
+			addedFrom = new int[maxDepth];
+			addedTo = new int[maxDepth];
+		}
+
+		/**
+		 * Looks for an improving chain starting at node t1 and applies it
+		 * 
+		 * @return true if an improving chain was applied
+		 */
+		boolean improve(int t1) {
+
+			for (int dir = 0; dir < 2; dir++) {
+
+				boolean forward = dir == 0;
+				int t2 = forward ? tour.getNext(t1) : tour.getPrev(t1);
+				int g = distance.get(t1, t2);
+				int tried = 0;
+
+				for (int k = neighbours.getStart(t2); k < neighbours.getEnd(t2) && tried < breadth; k++) {
+
+					int t3 = neighbours.getCandidate(k);
+
+					if (g - neighbours.getDistance(k) <= 0) {
+						break;
+					}
+					if (t3 == t1 || getT4(t3, forward) == t2) {
+						continue;
+					}
+					tried++;
+
+					if (chain(t1, t2, t3, forward, g)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return the node t4 such that removing (t3, t4) and adding (t4, t1) closes the tour
+		 */
+		private int getT4(int t3, boolean forward) {
+			return forward ? tour.getPrev(t3) : tour.getNext(t3);
+		}
+
+		/**
+		 * Grows a chain of moves, starting by adding (t2, t3), where the edge (t1, t2) has been removed with gain g.
+		 * Keeps the best tour along the chain, if it improves the tour.
+		 * 
+		 * @return true if the tour was improved
+		 */
+		private boolean chain(int t1, int t2, int t3, boolean forward, int g) {
+
+			int depth = 0;
+			int bestGain = 0;
+			int bestDepth = 0;
+
+			while (true) {
+
+				int t4 = getT4(t3, forward);
+				int g1 = g - distance.get(t2, t3);
+				int d34 = distance.get(t3, t4);
+
+				// remove (t1, t2) and (t3, t4), add (t2, t3) and (t4, t1)
+				if (forward) {
+					tour.twoOptMove(t1, t4);
+					undoFrom[depth] = t1;
+					undoTo[depth] = t2;
+				} else {
+					tour.twoOptMove(t3, t2);
+					undoFrom[depth] = t3;
+					undoTo[depth] = t4;
+				}
+				addedFrom[depth] = t2;
+				addedTo[depth] = t3;
+				depth++;
+
+				int gain = g1 + d34 - distance.get(t4, t1);
+
+				if (gain > bestGain) {
+					bestGain = gain;
+					bestDepth = depth;
+				}
+
+				if (depth == maxDepth) {
+					break;
+				}
+
+				// continue from t4, removing the closing edge (t1, t4) instead
+				g = g1 + d34;
+				t2 = t4;
+				t3 = next(t1, t2, forward, g, depth);
+
+				if (t3 < 0) {
+					break;
+				}
+			}
+
+			while (depth > bestDepth) {
+				depth--;
+				tour.twoOptMove(undoFrom[depth], undoTo[depth]);
+			}
+
+			if (bestGain == 0) {
+				return false;
+			}
+
+			tour.addLength(-bestGain);
+
+			bits.activate(t1);
+			for (int s = 0; s < bestDepth; s++) {
+				bits.activate(addedFrom[s]);
+				bits.activate(addedTo[s]);
+				bits.activate(undoFrom[s]);
+				bits.activate(undoTo[s]);
+			}
+			return true;
+		}
+
+		/**
+		 * Chooses the next t3 among the first breadth candidates of t2: the one maximising the gain after removing
+		 * (t3, t4)
+		 * 
+		 * @return the next t3, or -1 if there is no candidate with positive gain
+		 */
+		private int next(int t1, int t2, boolean forward, int g, int depth) {
+
+			int best = -1;
+			int bestGain = Integer.MIN_VALUE;
+			int tried = 0;
+
+			for (int k = neighbours.getStart(t2); k < neighbours.getEnd(t2) && tried < breadth; k++) {
+
+				int t3 = neighbours.getCandidate(k);
+				int g1 = g - neighbours.getDistance(k);
+
+				if (g1 <= 0) {
+					break;
+				}
+
+				int t4 = getT4(t3, forward);
+
+				if (t3 == t1 || t4 == t2 || isAdded(t3, t4, depth)) {
+					continue;
+				}
+				tried++;
+
+				int gain = g1 + distance.get(t3, t4);
+
+				if (gain > bestGain) {
+					bestGain = gain;
+					best = t3;
+				}
+			}
+			return best;
+		}
+
+		private boolean isAdded(int a, int b, int depth) {
+			for (int s = 0; s < depth; s++) {
+				if ((addedFrom[s] == a && addedTo[s] == b) || (addedFrom[s] == b && addedTo[s] == a)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	public int getBreadth() {
+		return breadth;
+	}
+
+	public void setBreadth(int breadth) {
+		this.breadth = breadth;
+	}
+}
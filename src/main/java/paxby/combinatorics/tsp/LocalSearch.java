@@ -0,0 +1,33 @@
+package paxby.combinatorics.tsp;
+
+/**
+ * An improvement method for tours, e.g. 2-opt
+ * 
+ * @author Petter Axby
+ * 
+ */
+public interface LocalSearch {
+
+	/**
+	 * Improves the tour until a local optimum is found
+	 * 
+	 * @param tour
+	 *            the Tour
+	 * @param neighbours
+	 *            candidate lists of nodes to search
+	 */
+	void improve(Tour tour, CandidateList neighbours);
+
+	/**
+	 * Improves the tour until a local optimum is found, given a locally optimal reference tour (e.g. the best tour of
+	 * the previous iteration). Implementations may then search only near the edges not in the reference tour.
+	 * 
+	 * @param tour
+	 *            the Tour
+	 * @param neighbours
+	 *            candidate lists of nodes to search
+	 * @param reference
+	 *            reference tour, or null to search the whole tour
+	 */
+	void improve(Tour tour, CandidateList neighbours, Tour reference);
+}
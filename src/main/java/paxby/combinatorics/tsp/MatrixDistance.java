@@ -0,0 +1,131 @@
+package paxby.combinatorics.tsp;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Distances looked up in a pre-computed, symmetric distance matrix. Only the upper triangle is stored, row by row in a
+ * single array, i.e. half the memory of a full matrix. Fastest, but needs O(n^2) memory.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class MatrixDistance implements Distance {
+
+	private final int size;
+	private final int[] offset; // distance (i, j), i < j, is at triangle[offset[i] + j]
+	private final int[] triangle;
+
+	/**
+	 * @param matrix
+	 *            full distance matrix, of which the upper triangle is used
+	 */
+	public MatrixDistance(int[][] matrix) {
+
+		this(matrix.length);
+
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				triangle[offset[i] + j] = matrix[i][j];
+			}
+		}
+	}
+
+	/**
+	 * Compute the Euclidean distances (as Node.distToNint) between nodes, in parallel for large instances (see
+	 * TriangularRows)
+	 */
+	public MatrixDistance(List<Node> nodes) {
+		this(nodes.size());
+		getRows(nodes).run(size);
+	}
+
+	/**
+	 * Compute the Euclidean distances (as Node.distToNint) between nodes
+	 * 
+	 * @param nodes
+	 *            nodes, in index order
+	 * @param executor
+	 *            executor computing blocks of rows in parallel, or null to compute them on the calling thread
+	 */
+	public MatrixDistance(List<Node> nodes, ExecutorService executor) {
+		this(nodes.size());
+		getRows(nodes).run(size, executor);
+	}
+
+	private MatrixDistance(int size) {
+
+		long entries = (long) size * (size - 1) / 2;
+
+		if (entries > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many nodes (" + size + ") for a distance matrix");
+		}
+
+		this.size = size;
+		offset = new int[size];
+		triangle = new int[(int) entries];
+
+		// row i starts after the rows 0 .. i - 1, of size - 1, size - 2, ... entries, and begins at column i + 1
+		int start = 0;
+		for (int i = 0; i < size; i++) {
+			offset[i] = start - i - 1;
+			start += size - i - 1;
+		}
+	}
+
+	private TriangularRows getRows(List<Node> nodes) {
+
+		final double[] x = new double[size];
+		final double[] y = new double[size];
+
+		for (int i = 0; i < size; i++) {
+			x[i] = nodes.get(i).getX();
+			y[i] = nodes.get(i).getY();
+		}
+
+		return new TriangularRows() {
+			@Override
+			protected void computeRow(int i) {
+				int base = offset[i];
+				double xi = x[i];
+				double yi = y[i];
+				for (int j = i + 1; j < size; j++) {
+					double dx = x[j] - xi;
+					double dy = y[j] - yi;
+					triangle[base + j] = (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+				}
+			}
+		};
+	}
+
+	@Override
+	public int get(int i, int j) {
+		if (i < j) {
+			return triangle[offset[i] + j];
+		}
+		if (i > j) {
+			return triangle[offset[j] + i];
+		}
+		return 0;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the full distance matrix, expanded from the upper triangle on each call
+	 */
+	public int[][] getMatrix() {
+
+		int[][] matrix = new int[size][size];
+
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				matrix[i][j] = triangle[offset[i] + j];
+				matrix[j][i] = matrix[i][j];
+			}
+		}
+		return matrix;
+	}
+}
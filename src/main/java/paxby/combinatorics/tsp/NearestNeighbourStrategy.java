@@ -1,8 +1,5 @@
 package paxby.combinatorics.tsp;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,17 +13,7 @@ public class NearestNeighbourStrategy implements NeighbourStrategy {
 	 */
 	@Override
 	public Map<Node, List<Node>> getMap(List<Node> nodes, int size) {
-
-		Map<Node, List<Node>> map = new HashMap<Node, List<Node>>();
-
-		for (Node n1 : nodes) {
-			ArrayList<Node> list = new ArrayList<Node>(nodes);
-			list.remove(n1);
-			Collections.sort(list, new NNComparator(n1));
-
-			map.put(n1, size < list.size() ? list.subList(0, size) : list);
-		}
-		return map;
+		return getCandidateList(nodes, size).asMap(nodes);
 	}
 
 	/**
@@ -38,4 +25,48 @@ public class NearestNeighbourStrategy implements NeighbourStrategy {
 	public Map<Node, List<Node>> getMap(List<Node> nodes) {
 		return getMap(nodes, nodes.size() - 1);
 	}
+
+	/**
+	 * Returns the sorted nearest-neighbour (NN) lists of given size in compact form, with Euclidean distances.
+	 * 
+	 * @return candidate lists
+	 * @param size size of neighbour list
+	 */
+	@Override
+	public CandidateList getCandidateList(List<Node> nodes, int size) {
+		return getCandidateList(nodes, size, new EuclideanDistance(nodes));
+	}
+
+	/**
+	 * Returns the sorted nearest-neighbour (NN) lists of given size in compact form. The lists are found by k-nearest
+	 * queries on a KDTree, in roughly O(n k log n) time.
+	 * 
+	 * @return candidate lists
+	 * @param size size of neighbour list
+	 * @param distance distance between nodes
+	 */
+	@Override
+	public CandidateList getCandidateList(List<Node> nodes, int size, Distance distance) {
+
+		KDTree tree = new KDTree(nodes);
+		int k = Math.max(0, Math.min(size, nodes.size() - 1));
+
+		int[] offset = new int[nodes.size() + 1];
+		int[] candidate = new int[nodes.size() * k];
+		int[] candidateDistance = new int[nodes.size() * k];
+
+		for (int i = 0; i < nodes.size(); i++) {
+
+			int[] nearest = tree.getNearest(i, k);
+			offset[i] = i * k;
+
+			for (int c = 0; c < k; c++) {
+				candidate[i * k + c] = nearest[c];
+				candidateDistance[i * k + c] = distance.get(i, nearest[c]);
+			}
+		}
+		offset[nodes.size()] = nodes.size() * k;
+
+		return new CandidateList(offset, candidate, candidateDistance);
+	}
 }
@@ -7,5 +7,7 @@ public interface NeighbourStrategy {
 
 	Map<Node,List<Node>> getMap(List<Node> nodes, int size);
 	Map<Node,List<Node>> getMap(List<Node> nodes);
+	CandidateList getCandidateList(List<Node> nodes, int size);
+	CandidateList getCandidateList(List<Node> nodes, int size, Distance distance);
 
 }
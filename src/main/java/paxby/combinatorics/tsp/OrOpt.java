@@ -0,0 +1,149 @@
+package paxby.combinatorics.tsp;
+
+/**
+ * Or-opt local search: moves segments of up to three (by default) consecutive nodes to another place in the tour,
+ * optionally reversed. First improvement, using neighbour lists and don't-look bits.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class OrOpt implements LocalSearch {
+
+	private final int maxSegment;
+
+	public OrOpt() {
+		this(3);
+	}
+
+	/**
+	 * @param maxSegment
+	 *            maximum number of nodes in a segment
+	 */
+	public OrOpt(int maxSegment) {
+		this.maxSegment = maxSegment;
+	}
+
+	@Override
+	public void improve(Tour tour, CandidateList neighbours) {
+		improve(tour, neighbours, null);
+	}
+
+	@Override
+	public void improve(Tour tour, CandidateList neighbours, Tour reference) {
+
+		if (neighbours.getSize() < 5) {
+			return;
+		}
+
+		Distance distance = tour.getDistance();
+		DontLookBits bits = new DontLookBits(neighbours.getSize());
+		int[] segment = new int[maxSegment];
+
+		if (reference == null) {
+			bits.activateAll();
+		} else {
+			bits.activateChanged(tour, reference);
+		}
+
+		int a;
+		while ((a = bits.next()) >= 0) {
+			if (improve(tour, neighbours, distance, a, bits, segment)) {
+				bits.activate(a);
+			}
+		}
+	}
+
+	/**
+	 * Looks for an improving move involving a node and applies it
+	 * 
+	 * @return true if an improving move was applied
+	 */
+	protected boolean improve(Tour tour, CandidateList neighbours, Distance distance, int a, DontLookBits bits,
+			int[] segment) {
+		return moveSegment(tour, neighbours, distance, a, bits, segment);
+	}
+
+	/**
+	 * Tries to move a segment with node a at one end, such that a becomes adjacent to one of its candidates
+	 * 
+	 * @return true if an improving move was applied
+	 */
+	protected boolean moveSegment(Tour tour, CandidateList neighbours, Distance distance, int a, DontLookBits bits,
+			int[] segment) {
+
+		int size = neighbours.getSize();
+
+		// the segment extends from a in the direction of its successor (forward) or predecessor
+		for (int dir = 0; dir < 2; dir++) {
+
+			boolean forward = dir == 0;
+			int p = forward ? tour.getPrev(a) : tour.getNext(a); // node before the segment
+			int s2 = a; // other end of the segment
+
+			for (int l = 1; l <= maxSegment && size - l >= 3; l++) {
+
+				if (l > 1) {
+					s2 = forward ? tour.getNext(s2) : tour.getPrev(s2);
+				}
+				segment[l - 1] = s2;
+				int n = forward ? tour.getNext(s2) : tour.getPrev(s2); // node after the segment
+
+				int g1 = distance.get(p, a) + distance.get(s2, n) - distance.get(p, n);
+
+				if (g1 <= 0) {
+					continue;
+				}
+
+				for (int k = neighbours.getStart(a); k < neighbours.getEnd(a); k++) {
+
+					int c = neighbours.getCandidate(k);
+					int dac = neighbours.getDistance(k);
+
+					if (dac >= g1) {
+						break;
+					}
+					if (contains(segment, l, c)) {
+						continue;
+					}
+
+					// insert between c and e, with a adjacent to c
+					for (int side = 0; side < 2; side++) {
+
+						boolean cFirst = side == 0; // e follows c
+						int e = cFirst ? tour.getNext(c) : tour.getPrev(c);
+
+						if (contains(segment, l, e)) {
+							continue;
+						}
+
+						int delta = g1 - dac - distance.get(s2, e) + distance.get(c, e);
+
+						if (delta > 0) {
+							int first = forward ? a : s2;
+							int last = forward ? s2 : a;
+							tour.moveSegment(first, last, cFirst ? c : e, cFirst != forward);
+							tour.addLength(-delta);
+
+							bits.activate(p);
+							bits.activate(n);
+							bits.activate(c);
+							bits.activate(e);
+							bits.activate(s2);
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean contains(int[] segment, int length, int node) {
+		for (int i = 0; i < length; i++) {
+			if (segment[i] == node) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,64 @@
+package paxby.combinatorics.tsp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executor for parallel preprocessing of instances (distance matrices, heuristic values, Hopkins statistic) when no
+ * executor is given: a pool of daemon threads, one per processor, created on first use and shared by all instances.
+ * 
+ * Tasks on the pool must not wait for other tasks on the pool, which could all be queued behind them. Preprocessing
+ * started from a thread of the pool therefore runs on that thread: getExecutor returns null there, and the shared
+ * executor must not be passed explicitly to methods called on it.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public final class Preprocessing {
+
+	private static ExecutorService executor;
+
+	private Preprocessing() {
+	}
+
+	/**
+	 * @return the shared executor, or null (i.e. run on the calling thread) if there is a single processor or if
+	 *         called from a thread of the pool
+	 */
+	public static synchronized ExecutorService getExecutor() {
+		if (Thread.currentThread() instanceof PoolThread) {
+			return null;
+		}
+		final int threads = Runtime.getRuntime().availableProcessors();
+		if (executor == null && threads > 1) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					return new PoolThread(r);
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * @param size
+	 *            number of rows of a matrix to be computed
+	 * @return the shared executor if the matrix has at least TriangularRows.PARALLEL_LIMIT rows, otherwise null
+	 */
+	public static ExecutorService getExecutor(int size) {
+		return size < TriangularRows.PARALLEL_LIMIT ? null : getExecutor();
+	}
+
+	/**
+	 * Thread of the shared pool
+	 */
+	private static class PoolThread extends Thread {
+
+		PoolThread(Runnable r) {
+			super(r, "preprocessing");
+			setDaemon(true);
+		}
+	}
+}
@@ -1,17 +1,10 @@
 package paxby.combinatorics.tsp;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class QNearestNeighbourStrategy implements NeighbourStrategy {
 
-	public QNearestNeighbourStrategy() {
-		// TODO Auto-generated constructor stub
-	}
-
 	/**
 	 * Returns a map of sorted quadrant-nearest-neighbour (QNN) lists of given size.
 	 * 
@@ -20,68 +13,75 @@ public class QNearestNeighbourStrategy implements NeighbourStrategy {
 	 */
 	@Override
 	public Map<Node, List<Node>> getMap(List<Node> nodes, int size) {
+		return getCandidateList(nodes, size).asMap(nodes);
+	}
 
-		Map<Node, List<Node>> NNMap = new NearestNeighbourStrategy().getMap(nodes);
-		Map<Node, List<Node>> QNNMap = new HashMap<Node, List<Node>>();
-				
-		for (Node node: NNMap.keySet()) {
-				
-			List<ArrayList<Node>> qLists = new ArrayList<ArrayList<Node>>();
+	/**
+	 * Returns a map of sorted quadrant-nearest-neighbour (QNN) lists containing all other nodes
+	 * 
+	 * @return map of sorted quadrant-nearest-neighbour (QNN) lists
+	 */
+	@Override
+	public Map<Node, List<Node>> getMap(List<Node> nodes) {
+		return getMap(nodes, nodes.size() - 1);
+	}
 
-			// create 4 collections to store nodes in the four quadrants
-			for (int k = 0; k < 4; k++) {
-				qLists.add(new ArrayList<Node>());
-			}
+	/**
+	 * Returns the sorted quadrant-nearest-neighbour (QNN) lists of given size in compact form, with Euclidean
+	 * distances.
+	 * 
+	 * @return candidate lists
+	 * @param size size of neighbour list
+	 */
+	@Override
+	public CandidateList getCandidateList(List<Node> nodes, int size) {
+		return getCandidateList(nodes, size, new EuclideanDistance(nodes));
+	}
 
-			for (Node neighbour: NNMap.get(node)) {
+	/**
+	 * Returns the sorted quadrant-nearest-neighbour (QNN) lists of given size in compact form. The nearest nodes of
+	 * each quadrant are found by k-nearest queries on a KDTree, and the lists are filled by taking one node from each
+	 * quadrant in turn.
+	 * 
+	 * @return candidate lists
+	 * @param size size of neighbour list
+	 * @param distance distance between nodes
+	 */
+	@Override
+	public CandidateList getCandidateList(List<Node> nodes, int size, Distance distance) {
 
-				if (neighbour.getX() < node.getX()) {
-					if (neighbour.getY() < node.getY()) {
-						qLists.get(0).add(neighbour);
-					} else {
-						qLists.get(1).add(neighbour);
-					}
-				} else {
-					if (neighbour.getY() < node.getY()) {
-						qLists.get(2).add(neighbour);
-					} else {
-						qLists.get(3).add(neighbour);
-					}
-				}
-			}
+		KDTree tree = new KDTree(nodes);
+		int k = Math.max(0, Math.min(size, nodes.size() - 1));
+
+		int[] offset = new int[nodes.size() + 1];
+		int[] candidate = new int[nodes.size() * k];
+		int[] candidateDistance = new int[nodes.size() * k];
+
+		int[][] qLists = new int[4][];
+		int[] position = new int[4];
 
-			List<Iterator<Node>> iterators = new ArrayList<Iterator<Node>>();
+		for (int i = 0; i < nodes.size(); i++) {
 
-			for (ArrayList<Node> k : qLists) {
-				iterators.add(k.iterator());
+			for (int q = 0; q < 4; q++) {
+				qLists[q] = tree.getNearest(i, k, q);
+				position[q] = 0;
 			}
 
-			List<Node> list = new ArrayList<Node>();
+			int c = i * k;
+			offset[i] = c;
 
-			while (list.size() < size) {
-				for (Iterator<Node> iterator: iterators) {
-					if (iterator.hasNext()) {
-						list.add(iterator.next());
-					}
-					if (list.size() == size) {
-						break;
+			while (c < (i + 1) * k) {
+				for (int q = 0; q < 4 && c < (i + 1) * k; q++) {
+					if (position[q] < qLists[q].length) {
+						candidate[c] = qLists[q][position[q]++];
+						candidateDistance[c] = distance.get(i, candidate[c]);
+						c++;
 					}
 				}
 			}
-			
-			QNNMap.put(node,  list);
 		}
+		offset[nodes.size()] = nodes.size() * k;
 
-		return QNNMap;
-	}
-
-	/**
-	 * Returns a map of sorted quadrant-nearest-neighbour (QNN) lists containing all other nodes
-	 * 
-	 * @return map of sorted quadrant-nearest-neighbour (QNN) lists
-	 */
-	@Override
-	public Map<Node, List<Node>> getMap(List<Node> nodes) {
-		return getMap(nodes, nodes.size() - 1);
+		return new CandidateList(offset, candidate, candidateDistance);
 	}
 }
@@ -0,0 +1,100 @@
+package paxby.combinatorics.tsp;
+
+import java.util.Arrays;
+
+/**
+ * Space-filling curves, which visit nearby points at nearby positions. Renumbering the nodes of an instance in the
+ * order of a curve (see TSP.renumber) puts spatial neighbours, e.g. a node and its candidates, close together in
+ * arrays indexed by node, so that construction and local search touch fewer cache lines.
+ * 
+ * Points are mapped to a grid of 2^16 x 2^16 cells, scaled equally in both dimensions.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public enum SpaceFillingCurve {
+
+	HILBERT, // continuous: consecutive cells are adjacent
+	MORTON; // Z-order: interleaved bits of the cell coordinates, cheaper but with jumps
+
+	private static final int BITS = 16;
+	private static final int CELLS = 1 << BITS;
+
+	/**
+	 * @return position of a cell along the curve, 0 <= position < 2^32
+	 * @param cx
+	 *            x coordinate of cell, 0 <= cx < 2^16
+	 * @param cy
+	 *            y coordinate of cell, 0 <= cy < 2^16
+	 */
+	public long getPosition(int cx, int cy) {
+
+		long d = 0;
+
+		if (this == MORTON) {
+			for (int b = 0; b < BITS; b++) {
+				d |= (long) ((cx >> b) & 1) << (2 * b + 1) | (long) ((cy >> b) & 1) << (2 * b);
+			}
+			return d;
+		}
+
+		for (int s = CELLS / 2; s > 0; s /= 2) {
+			int rx = (cx & s) > 0 ? 1 : 0;
+			int ry = (cy & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+
+			// rotate the quadrant, so that the curve within it starts and ends next to the neighbouring quadrants
+			if (ry == 0) {
+				if (rx == 1) {
+					cx = CELLS - 1 - cx;
+					cy = CELLS - 1 - cy;
+				}
+				int t = cx;
+				cx = cy;
+				cy = t;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Returns the order of points along the curve; points in the same cell keep their relative order
+	 * 
+	 * @param x
+	 *            x coordinates
+	 * @param y
+	 *            y coordinates
+	 * @return order[k] is the index of the point at position k
+	 */
+	public int[] getOrder(double[] x, double[] y) {
+
+		int size = x.length;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < size; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		double extent = Math.max(maxX - minX, maxY - minY);
+		double scale = extent > 0 ? (CELLS - 1) / extent : 0;
+
+		// position in the high bits, index in the low bits, so that sorting orders by position, then index
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			int cx = (int) ((x[i] - minX) * scale);
+			int cy = (int) ((y[i] - minY) * scale);
+			keys[i] = getPosition(cx, cy) << 31 | i;
+		}
+		Arrays.sort(keys);
+
+		int[] order = new int[size];
+		for (int k = 0; k < size; k++) {
+			order[k] = (int) (keys[k] & Integer.MAX_VALUE);
+		}
+		return order;
+	}
+}
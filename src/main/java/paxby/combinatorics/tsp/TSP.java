@@ -1,15 +1,17 @@
 package paxby.combinatorics.tsp;
 
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Class for representing a TSP. 
@@ -19,15 +21,29 @@ import java.util.Set;
  */
 public class TSP {
 
+	/**
+	 * How distances between nodes are provided
+	 */
+	public enum DistanceMode {
+		MATRIX, // full distance matrix
+		COORDINATES // computed from coordinates on demand
+	}
+
+	public static final int MATRIX_LIMIT = 5000; // default to a distance matrix up to this size
+
 	private String name;
 	private List<Node> nodes;
+	private double[] x, y; // coordinates of each node
+	private int[] originalIndex; // index of each node in the input, or null if not renumbered
 	private Map<Node, List<Node>> neighbours;
 	private Random ran = new Random();
 	private Range range;
-	private int[][] distanceMatrix;
+	private Distance distance;
+	private KDTree tree;
+	private DistanceMode distanceMode;
 
 	/**
-	 * Initialises the object by reading TSPLIB file
+	 * Initialises the object by reading TSPLIB file, which may be gzip-compressed
 	 * 
 	 * @param fileName
 	 *            TSPLIB file
@@ -40,65 +56,10 @@ public class TSP {
 	 */
 	public TSP(String fileName) throws UnsupportedFileException, FileNotFoundException, InvalidFileException {
 
-		Scanner in = new Scanner(new FileReader(fileName));
-		int size = 0;
-
-		while (in.hasNextLine()) {
-
-			String line = in.nextLine();
-
-			String[] fields = line.split(":");
-			fields[0] = fields[0].trim().toUpperCase();
-
-			if (fields[0].equals("NAME")) {
-				name = fields[1].trim();
-			} 
-			else if (fields[0].equals("TYPE")) {
-				String type = fields[1].trim().toUpperCase();
-
-				if (!type.equals("TSP")) {
-					in.close();
-					throw new UnsupportedFileException("Type " + type + " is not supported");
-				}
-			}
-			else if (fields[0].equals("DIMENSION")) {
-				size = Integer.parseInt(fields[1].trim());
-			} 
-			else if (fields[0].equals("EDGE_WEIGHT_TYPE")) {
-				String edgeWeightType = fields[1].trim().toUpperCase();
-				if (!edgeWeightType.equals("EUC_2D") && !edgeWeightType.equals("ATT")) {  // Note: ATT is treated as Euclidean TSP
-					in.close();
-					throw new UnsupportedFileException("Edge weight type " + edgeWeightType + " is not supported");
-				}
-			} 
-			else if (fields[0].equals("FIXED_EDGES_SECTION")) {
-				in.close();
-				throw new UnsupportedFileException("FIXED_EDGES_SECTION is not supported");
-			} 
-			else if (fields[0].equals("NODE_COORD_SECTION")) {
-				nodes = new ArrayList<Node>();
-				for (int i = 0; i < size; i++) {
-
-					try {
-						nodes.add(new Node(in.nextInt() - 1, in.nextFloat(), in.nextFloat()));
-						in.nextLine();
-					} catch (Exception e) {
-						in.close();
-						throw new InvalidFileException("Unable to parse file " + fileName);
-					}
-
-					if (nodes.get(i).getIndex() != i) {
-						in.close();
-						throw new InvalidFileException("Node indices must be sequential starting from 1");
-					}
-				}
-			} 
-			else if (!fields[0].equals("") && !fields[0].equals("EOF") && !fields[0].equals("COMMENT")) {
-				in.close();
-				throw new InvalidFileException("Unable to parse file " + fileName);
-			}
-		}
-		in.close();
+		TSPLIBReader reader = new TSPLIBReader(fileName);
+		reader.parse();
+		name = reader.getName();
+		nodes = reader.getNodes();
 		initialise();
 	}
 	
@@ -108,12 +69,98 @@ public class TSP {
 		initialise();
 	}
 
+	public TSP(String name, List<Node> nodes) {
+
+		this.name = name;
+		this.nodes = nodes;
+		initialise();
+	}
+
 	private void initialise() {
-		distanceMatrix = getDistanceMatrix(nodes);
+
+		x = new double[nodes.size()];
+		y = new double[nodes.size()];
+
+		for (int i = 0; i < nodes.size(); i++) {
+			x[i] = nodes.get(i).getX();
+			y[i] = nodes.get(i).getY();
+		}
+
 		range = getRange(nodes);
-		neighbours = new NearestNeighbourStrategy().getMap(nodes);
+		setDistanceMode(nodes.size() <= MATRIX_LIMIT ? DistanceMode.MATRIX : DistanceMode.COORDINATES);
+	}
+
+	/**
+	 * Set how distances between nodes are provided. Defaults to MATRIX for instances up to MATRIX_LIMIT nodes, and
+	 * COORDINATES for larger instances.
+	 * 
+	 * @param distanceMode
+	 *            distance mode
+	 */
+	public void setDistanceMode(DistanceMode distanceMode) {
+
+		this.distanceMode = distanceMode;
+
+		switch (distanceMode) {
+		case MATRIX:
+			distance = new MatrixDistance(nodes);
+			break;
+		case COORDINATES:
+			distance = new EuclideanDistance(x, y);
+			break;
+		}
 	}
 	
+	/**
+	 * Returns a copy of the TSP with the nodes renumbered in the order of a space-filling curve, so that nodes which
+	 * are close in space are also close in arrays indexed by node. The distance mode is kept. Tours of the copy can be
+	 * mapped to the numbering of the input with getOriginalIndex or getOriginalWalk.
+	 * 
+	 * @param curve
+	 *            space-filling curve
+	 * @return renumbered TSP
+	 */
+	public TSP renumber(SpaceFillingCurve curve) {
+
+		int[] order = curve.getOrder(x, y);
+		List<Node> renumbered = new ArrayList<Node>(order.length);
+
+		for (int k = 0; k < order.length; k++) {
+			renumbered.add(new Node(k, x[order[k]], y[order[k]]));
+		}
+
+		TSP tsp = new TSP(name, renumbered);
+		if (tsp.distanceMode != distanceMode) {
+			tsp.setDistanceMode(distanceMode);
+		}
+
+		tsp.originalIndex = new int[order.length];
+		for (int k = 0; k < order.length; k++) {
+			tsp.originalIndex[k] = getOriginalIndex(order[k]);
+		}
+		return tsp;
+	}
+
+	/**
+	 * @return the index of a node in the input (i.e. i, unless renumbered)
+	 * @param i
+	 *            index of node
+	 */
+	public int getOriginalIndex(int i) {
+		return originalIndex == null ? i : originalIndex[i];
+	}
+
+	/**
+	 * @return the walk of a tour of this TSP, in the numbering of the input
+	 */
+	public int[] getOriginalWalk(Tour tour) {
+		int[] walk = tour.getWalk();
+		for (int p = 0; p < walk.length; p++) {
+			walk[p] = getOriginalIndex(walk[p]);
+		}
+		return walk;
+	}
+
 	/**
 	 * Returns the X/Y range as a Range object
 	 */
@@ -144,21 +191,10 @@ public class TSP {
 	}
 
 	/**
-	 * Returns a distanceMatrix matrix given a list of nodes
+	 * Returns a distanceMatrix matrix given a list of nodes (see MatrixDistance, which needs half the memory)
 	 */
 	public static int[][] getDistanceMatrix(List<Node> nodes) {
-
-		int size = nodes.size();
-
-		int[][] distance = new int[size][size];
-
-		for (int i = 0; i < size; i++) {
-			for (int j = i + 1; j < size; j++) {
-				distance[i][j] = nodes.get(i).distToNint(nodes.get(j));
-				distance[j][i] = distance[i][j];
-			}
-		}
-		return distance;
+		return new MatrixDistance(nodes).getMatrix();
 	}
 	
 	/**
@@ -168,6 +204,14 @@ public class TSP {
 	 */
 	public Tour getNNTour() {
 		
+		if (neighbours == null) {
+			// the neighbour list of the first node holds all other nodes, so the walk visits them in order of distance
+			List<Node> walk = new ArrayList<Node>(nodes.subList(1, nodes.size()));
+			Collections.sort(walk, new NNComparator(nodes.get(0)));
+			walk.add(0, nodes.get(0));
+			return new Tour(this, walk);
+		}
+
 		List<Node> walk = new ArrayList<Node>();
 		Set<Node> visited = new HashSet<Node>();
 	
@@ -187,83 +231,119 @@ public class TSP {
 	}
 
 	/**
-	 * Returns a List of random nodes.
-	 * 
-	 * @return List of random nodes
-	 * @param sampleSize
-	 *            Number of nodes
-	 */
-	private List<Node> getRandomNodes(int size) {
-		List<Node> shuffledList = new ArrayList<Node>(nodes);
-		Collections.shuffle(shuffledList);
-		return shuffledList.subList(0, size);
-	}
-	
-	/**
-	 * Returns a List of points selected randomly from the space bounded by the space of TSP
+	 * Returns the Hopkins statistic for the TSP (a measure of spatial clustering). Tests run in parallel on the shared
+	 * executor of Preprocessing.
 	 * 
-	 * @return List of points
-	 * @param sampleSize
-	 *            Number of nodes
+	 * @param numberOfTests
+	 *            Number of independent tests
+	 * @param sampleSizeFactor
+	 *            Proportion to select as test sample (0 < sampleSizeFactor <= 1)
+	 * @return Hopkins statistic (mean of independent tests)
 	 */
-	private List<Node> getRandomPoints(int sampleSize) {
-		List<Node> u = new ArrayList<Node>();
-		for (int i = 0; i < sampleSize; i++) {
-			double x = ran.nextDouble() * (range.getMaxX() - range.getMinX()) + range.getMinX();
-			double y = ran.nextDouble() * (range.getMaxY() - range.getMinY()) + range.getMinY();
-			u.add(new Node(0, x, y));
-		}
-		return u;
+	public double getHopkins(int numberOfTests, double sampleSizeFactor) {
+		return getHopkins(numberOfTests, sampleSizeFactor, numberOfTests > 1 ? Preprocessing.getExecutor() : null);
 	}
 
 	/**
-	 * Returns the Hopkins statistic for the TSP (a measure of spatial clustering)
+	 * Returns the Hopkins statistic for the TSP (a measure of spatial clustering). Each test draws its samples from
+	 * its own random number generator, seeded in turn from the generator of the TSP, so that the result only depends
+	 * on the seed, and not on the number of threads. Nearest-neighbour distances are found with a KDTree.
 	 * 
 	 * @param numberOfTests
 	 *            Number of independent tests
 	 * @param sampleSizeFactor
 	 *            Proportion to select as test sample (0 < sampleSizeFactor <= 1)
+	 * @param executor
+	 *            executor running the tests, or null to run them on the calling thread
 	 * @return Hopkins statistic (mean of independent tests)
 	 */
-	public double getHopkins(int numberOfTests, double sampleSizeFactor) {
+	public double getHopkins(int numberOfTests, double sampleSizeFactor, ExecutorService executor) {
 
 		final int sampleSize = (int) (nodes.size() * sampleSizeFactor);
-		double sum = 0;
+		final KDTree tree = getTree();
 
+		long[] seeds = new long[numberOfTests];
 		for (int z = 0; z < numberOfTests; z++) {
+			seeds[z] = ran.nextLong();
+		}
 
-			List<Node> w = getRandomNodes(sampleSize);
-			List<Node> u = getRandomPoints(sampleSize);
+		double sum = 0;
 
-			double sumdu = 0;
-			for (Node nu : u) {
-				double d = Double.POSITIVE_INFINITY;
-				for (Node n : nodes) {
-					if (nu.distTo(n) < d) {
-						d = nu.distTo(n);
-					}
-				}
-				sumdu += d;
+		if (executor == null) {
+			for (long seed : seeds) {
+				sum += getHopkins(tree, sampleSize, new Random(seed));
 			}
+			return sum / numberOfTests;
+		}
 
-			double sumdw = 0;
-			for (Node nw : w) {
-				double d = Double.POSITIVE_INFINITY;
-				for (Node n : nodes) {
-					if ((nw.distTo(n) < d) && n != nw) {
-						d = nw.distTo(n);
-					}
+		List<Callable<Double>> tests = new ArrayList<Callable<Double>>();
+		for (final long seed : seeds) {
+			tests.add(new Callable<Double>() {
+				@Override
+				public Double call() {
+					return getHopkins(tree, sampleSize, new Random(seed));
 				}
-				sumdw += d;
-			}
+			});
+		}
 
-			double hopkins = sumdu / (sumdu + sumdw);
-			sum += hopkins;
+		try {
+			// summed in order of the tests, so that the result does not depend on scheduling
+			for (Future<Double> result : executor.invokeAll(tests)) {
+				sum += result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing the Hopkins statistic", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Unable to compute the Hopkins statistic", e.getCause());
 		}
 
 		return sum / numberOfTests;
 	}
 
+	/**
+	 * Returns the Hopkins statistic of a single test: the sum of the distances from random points in the bounding box
+	 * to their nearest node (u), relative to the sum of u and the distances from random nodes to their nearest other
+	 * node (w)
+	 */
+	private double getHopkins(KDTree tree, int sampleSize, Random random) {
+
+		double sumdu = 0;
+		for (int k = 0; k < sampleSize; k++) {
+			double x = random.nextDouble() * (range.getMaxX() - range.getMinX()) + range.getMinX();
+			double y = random.nextDouble() * (range.getMaxY() - range.getMinY()) + range.getMinY();
+			sumdu += tree.getNearestDistance(x, y, -1);
+		}
+
+		// sample of distinct nodes: the first sampleSize elements of a partial shuffle
+		int[] sample = new int[nodes.size()];
+		for (int i = 0; i < sample.length; i++) {
+			sample[i] = i;
+		}
+
+		double sumdw = 0;
+		for (int k = 0; k < sampleSize; k++) {
+			int r = k + random.nextInt(sample.length - k);
+			int i = sample[r];
+			sample[r] = sample[k];
+			sample[k] = i;
+
+			Node node = nodes.get(i);
+			sumdw += tree.getNearestDistance(node.getX(), node.getY(), i);
+		}
+
+		return sumdu / (sumdu + sumdw);
+	}
+
+	/**
+	 * @return KDTree over the nodes (created on first use)
+	 */
+	private synchronized KDTree getTree() {
+		if (tree == null) {
+			tree = new KDTree(nodes);
+		}
+		return tree;
+	}
 
 	/**
 	 * Set seed for random number generation
@@ -299,7 +379,13 @@ public class TSP {
 		return nodes.size();
 	}
 
+	/**
+	 * @return map of sorted nearest-neighbour lists containing all other nodes (created on first use)
+	 */
 	public Map<Node, List<Node>> getNeighbours() {
+		if (neighbours == null) {
+			neighbours = new NearestNeighbourStrategy().getMap(nodes);
+		}
 		return neighbours;
 	}
 
@@ -311,7 +397,36 @@ public class TSP {
 		return nodes;
 	}
 
+	/**
+	 * @return x coordinate of each node, by index (not to be modified)
+	 */
+	public double[] getXCoordinates() {
+		return x;
+	}
+
+	/**
+	 * @return y coordinate of each node, by index (not to be modified)
+	 */
+	public double[] getYCoordinates() {
+		return y;
+	}
+
+	public DistanceMode getDistanceMode() {
+		return distanceMode;
+	}
+
+	public Distance getDistance() {
+		return distance;
+	}
+
+	/**
+	 * @return the full distance matrix (computed on each call; expanded from the stored triangle if the distance mode
+	 *         is MATRIX)
+	 */
 	public int[][] getDistanceMatrix() {
-		return distanceMatrix;
+		if (distance instanceof MatrixDistance) {
+			return ((MatrixDistance) distance).getMatrix();
+		}
+		return getDistanceMatrix(nodes);
 	}
 }
\ No newline at end of file
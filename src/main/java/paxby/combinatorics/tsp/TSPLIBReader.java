@@ -0,0 +1,398 @@
+package paxby.combinatorics.tsp;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader of TSPLIB files (optionally gzip-compressed). Header lines are read as text, while the
+ * NODE_COORD_SECTION is tokenized directly from a byte buffer. Coordinates are read as double. Errors are reported as
+ * InvalidFileException with the line and column of the offending input.
+ * 
+ * @author Petter Axby
+ * 
+ */
+class TSPLIBReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final double[] POWERS_OF_TEN = new double[23]; // exactly representable as double
+	private static final long MAX_EXACT = 1L << 53; // mantissas up to this are exact as double
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final String fileName;
+	private final InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position, limit;
+	private long offset; // file offset of buffer[0]
+	private long lineStart; // file offset of the first byte of the current line
+	private int line = 1;
+
+	private byte[] text = new byte[128]; // bytes of the current header line or number
+	private int textLength;
+
+	private String name;
+	private List<Node> nodes;
+
+	/**
+	 * Opens a TSPLIB file. Files starting with the gzip magic number are decompressed.
+	 * 
+	 * @param fileName
+	 *            TSPLIB file
+	 * @throws FileNotFoundException
+	 *             File not found
+	 * @throws InvalidFileException
+	 *             Unable to read file
+	 */
+	TSPLIBReader(String fileName) throws FileNotFoundException, InvalidFileException {
+
+		this.fileName = fileName;
+		FileInputStream file = new FileInputStream(fileName);
+
+		try {
+			fill(file);
+
+			if (limit >= 2 && (buffer[0] & 0xff) == 0x1f && (buffer[1] & 0xff) == 0x8b) {
+				file.getChannel().position(0);
+				in = new GZIPInputStream(file, BUFFER_SIZE);
+				limit = 0;
+			} else {
+				in = file;
+			}
+		} catch (IOException e) {
+			close(file);
+			throw new InvalidFileException("Unable to read file " + fileName, e);
+		}
+	}
+
+	/**
+	 * Reads the file and closes it
+	 * 
+	 * @throws UnsupportedFileException
+	 *             Type is not supported (must be TSP + EUC_2D or ATT)
+	 * @throws InvalidFileException
+	 *             Unable to parse file
+	 */
+	void parse() throws UnsupportedFileException, InvalidFileException {
+
+		try {
+			readFile();
+		} catch (IOException e) {
+			throw new InvalidFileException("Unable to read file " + fileName, e);
+		} finally {
+			close(in);
+		}
+	}
+
+	String getName() {
+		return name;
+	}
+
+	List<Node> getNodes() {
+		return nodes;
+	}
+
+	private void readFile() throws IOException, UnsupportedFileException, InvalidFileException {
+
+		int size = -1;
+
+		while (true) {
+
+			int lineNumber = line;
+			String header = readLine();
+
+			if (header == null) {
+				break;
+			}
+
+			int colon = header.indexOf(':');
+			String key = (colon < 0 ? header : header.substring(0, colon)).trim().toUpperCase();
+			String value = colon < 0 ? "" : header.substring(colon + 1).trim();
+
+			if (key.equals("NAME")) {
+				name = value;
+			}
+			else if (key.equals("TYPE")) {
+				String type = value.toUpperCase();
+
+				if (!type.equals("TSP")) {
+					throw new UnsupportedFileException("Type " + type + " is not supported");
+				}
+			}
+			else if (key.equals("DIMENSION")) {
+				try {
+					size = Integer.parseInt(value);
+				} catch (NumberFormatException e) {
+					throw error("Invalid dimension " + value, lineNumber, header.indexOf(value, colon) + 1);
+				}
+				if (size < 0) {
+					throw error("Invalid dimension " + value, lineNumber, header.indexOf(value, colon) + 1);
+				}
+			}
+			else if (key.equals("EDGE_WEIGHT_TYPE")) {
+				String edgeWeightType = value.toUpperCase();
+				if (!edgeWeightType.equals("EUC_2D") && !edgeWeightType.equals("ATT")) {  // Note: ATT is treated as Euclidean TSP
+					throw new UnsupportedFileException("Edge weight type " + edgeWeightType + " is not supported");
+				}
+			}
+			else if (key.equals("FIXED_EDGES_SECTION")) {
+				throw new UnsupportedFileException("FIXED_EDGES_SECTION is not supported");
+			}
+			else if (key.equals("NODE_COORD_SECTION")) {
+				if (size < 0) {
+					throw error("DIMENSION must precede NODE_COORD_SECTION", lineNumber, 1);
+				}
+				readNodes(size);
+			}
+			else if (key.equals("EOF")) {
+				break;
+			}
+			else if (!key.equals("") && !key.equals("COMMENT")) {
+				throw error("Unexpected keyword " + key, lineNumber, 1);
+			}
+		}
+
+		if (nodes == null) {
+			throw new InvalidFileException("No NODE_COORD_SECTION in file " + fileName);
+		}
+	}
+
+	/**
+	 * Reads the lines "index x y" of the NODE_COORD_SECTION
+	 */
+	private void readNodes(int size) throws IOException, InvalidFileException {
+
+		nodes = new ArrayList<Node>(size);
+
+		for (int i = 0; i < size; i++) {
+
+			skipWhitespace();
+			int indexLine = line;
+			int indexColumn = getColumn();
+			double index = readNumber();
+
+			if (index != i + 1) {
+				throw error("Node indices must be sequential starting from 1", indexLine, indexColumn);
+			}
+
+			skipBlanks();
+			double x = readNumber();
+			skipBlanks();
+			double y = readNumber();
+			skipLine();
+
+			nodes.add(new Node(i, x, y));
+		}
+	}
+
+	/**
+	 * Reads a decimal number, e.g. -12.5e3. If the digits fit in 53 bits and the exponent is small, the value is
+	 * computed by a single (correctly rounded) multiplication or division by an exact power of ten; otherwise the
+	 * number is parsed with Double.parseDouble.
+	 */
+	private double readNumber() throws IOException, InvalidFileException {
+
+		int column = getColumn();
+		long mantissa = 0;
+		int scale = 0; // number of digits after the decimal point
+		int digits = 0;
+		boolean exact = true;
+		boolean negative = false;
+		textLength = 0;
+
+		int c = peek();
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			append(read());
+			c = peek();
+		}
+
+		boolean point = false;
+		while ((c >= '0' && c <= '9') || (c == '.' && !point)) {
+			if (c == '.') {
+				point = true;
+			} else {
+				if (mantissa < MAX_EXACT / 10) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (point) {
+						scale++;
+					}
+				} else {
+					exact = false;
+				}
+				digits++;
+			}
+			append(read());
+			c = peek();
+		}
+
+		if (digits == 0) {
+			throw error("Number expected", line, column);
+		}
+
+		int exponent = 0;
+		if (c == 'e' || c == 'E') {
+			append(read());
+			c = peek();
+			boolean negativeExponent = false;
+			if (c == '-' || c == '+') {
+				negativeExponent = c == '-';
+				append(read());
+				c = peek();
+			}
+			if (c < '0' || c > '9') {
+				throw error("Invalid number", line, column);
+			}
+			while (c >= '0' && c <= '9') {
+				if (exponent < 1000) {
+					exponent = exponent * 10 + (c - '0');
+				}
+				append(read());
+				c = peek();
+			}
+			if (negativeExponent) {
+				exponent = -exponent;
+			}
+		}
+
+		if (c >= 0 && !isWhitespace(c)) {
+			throw error("Invalid number", line, column);
+		}
+
+		exponent -= scale;
+
+		if (exact && exponent >= -22 && exponent <= 22) {
+			double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			return negative ? -value : value;
+		}
+		return Double.parseDouble(new String(text, 0, textLength, StandardCharsets.US_ASCII));
+	}
+
+	private void append(int c) {
+		if (textLength == text.length) {
+			text = Arrays.copyOf(text, 2 * text.length);
+		}
+		text[textLength++] = (byte) c;
+	}
+
+	/**
+	 * Reads the rest of the current line, without the line terminator
+	 * 
+	 * @return the line, or null at the end of the file
+	 */
+	private String readLine() throws IOException {
+
+		int c = read();
+		if (c < 0) {
+			return null;
+		}
+
+		int length = 0;
+		while (c >= 0 && c != '\n') {
+			if (length == text.length) {
+				text = Arrays.copyOf(text, 2 * text.length);
+			}
+			text[length++] = (byte) c;
+			c = read();
+		}
+		if (length > 0 && text[length - 1] == '\r') {
+			length--;
+		}
+		return new String(text, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private void skipLine() throws IOException {
+		int c;
+		do {
+			c = read();
+		} while (c >= 0 && c != '\n');
+	}
+
+	/**
+	 * Skips spaces, tabs and line terminators
+	 */
+	private void skipWhitespace() throws IOException {
+		int c = peek();
+		while (c >= 0 && isWhitespace(c)) {
+			read();
+			c = peek();
+		}
+	}
+
+	/**
+	 * Skips spaces and tabs within a line
+	 */
+	private void skipBlanks() throws IOException {
+		int c = peek();
+		while (c == ' ' || c == '\t') {
+			read();
+			c = peek();
+		}
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill(in)) {
+			return -1;
+		}
+		return buffer[position] & 0xff;
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill(in)) {
+			return -1;
+		}
+		int c = buffer[position++] & 0xff;
+		if (c == '\n') {
+			line++;
+			lineStart = offset + position;
+		}
+		return c;
+	}
+
+	/**
+	 * Reads the next block of the file into the buffer
+	 * 
+	 * @return false at the end of the file
+	 */
+	private boolean fill(InputStream stream) throws IOException {
+		offset += limit;
+		position = 0;
+		limit = 0;
+		int n = stream.read(buffer);
+		if (n > 0) {
+			limit = n;
+		}
+		return n > 0;
+	}
+
+	private int getColumn() {
+		return (int) (offset + position - lineStart) + 1;
+	}
+
+	private InvalidFileException error(String s, int line, int column) {
+		return new InvalidFileException(s + " in file " + fileName, line, column);
+	}
+
+	private static void close(InputStream stream) {
+		try {
+			stream.close();
+		} catch (IOException e) {
+			// nothing more to do
+		}
+	}
+}
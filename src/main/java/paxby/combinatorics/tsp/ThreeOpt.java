@@ -0,0 +1,79 @@
+package paxby.combinatorics.tsp;
+
+/**
+ * Restricted 3-opt (or-3opt) local search: segment reversal (2-opt) moves and segment insertion (Or-opt) moves. First
+ * improvement, using neighbour lists and don't-look bits.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class ThreeOpt extends OrOpt {
+
+	public ThreeOpt() {
+		super();
+	}
+
+	/**
+	 * @param maxSegment
+	 *            maximum number of nodes in an inserted segment
+	 */
+	public ThreeOpt(int maxSegment) {
+		super(maxSegment);
+	}
+
+	@Override
+	protected boolean improve(Tour tour, CandidateList neighbours, Distance distance, int a, DontLookBits bits,
+			int[] segment) {
+		return reverseSegment(tour, neighbours, distance, a, bits)
+				|| moveSegment(tour, neighbours, distance, a, bits, segment);
+	}
+
+	/**
+	 * Tries a 2-opt move replacing an edge of node a and an edge of one of its candidates c by (a, c)
+	 * 
+	 * @return true if an improving move was applied
+	 */
+	private boolean reverseSegment(Tour tour, CandidateList neighbours, Distance distance, int a, DontLookBits bits) {
+
+		for (int dir = 0; dir < 2; dir++) {
+
+			boolean forward = dir == 0;
+			int b = forward ? tour.getNext(a) : tour.getPrev(a);
+			int g1 = distance.get(a, b);
+
+			for (int k = neighbours.getStart(a); k < neighbours.getEnd(a); k++) {
+
+				int c = neighbours.getCandidate(k);
+				int g = g1 - neighbours.getDistance(k);
+
+				if (g <= 0) {
+					break;
+				}
+
+				int d = forward ? tour.getNext(c) : tour.getPrev(c);
+
+				if (c == b || d == a) {
+					continue;
+				}
+
+				int delta = g + distance.get(c, d) - distance.get(b, d);
+
+				if (delta > 0) {
+					// replace (a, b) and (c, d) by (a, c) and (b, d)
+					if (forward) {
+						tour.twoOptMove(a, c);
+					} else {
+						tour.twoOptMove(d, b);
+					}
+					tour.addLength(-delta);
+
+					bits.activate(b);
+					bits.activate(c);
+					bits.activate(d);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -11,26 +11,46 @@ import java.util.Map;
  */
 public class Tour {
 
-	// speed-up techniques for 2-opt
-	private static final boolean FIRST_IMPROVEMENT = false;
-	private static final boolean FIXED_RADIUS = true;
-	private static final boolean USE_DLB = false; // do-not-look bits
-
 	private final TSP tsp;
 	private int length;
+	private int moves; // number of moves applied by local search
 
-	// Incidence array. A node j is followed by node i in a tour if successor[i]=j
-	private final int successor[];
+	// Array representation: order[p] is the node at position p and position[i] the position of node i. The tour
+	// follows increasing positions (cyclically), or decreasing positions if reversed is set.
+	private final int order[];
+	private final int position[];
+	private boolean reversed;
 
 	public Tour(TSP tsp, List<Node> nodes) {
 
 		this.tsp = tsp;
-		successor = new int[nodes.size()];
+		order = new int[nodes.size()];
+		position = new int[nodes.size()];
 	
-		for (int i = 0; i < nodes.size() - 1; i++) {
-			successor[nodes.get(i).getIndex()] = nodes.get(i + 1).getIndex();
+		for (int i = 0; i < nodes.size(); i++) {
+			order[i] = nodes.get(i).getIndex();
+		}
+		initialise();
+	}
+
+	/**
+	 * @param tsp
+	 *            the TSP
+	 * @param walk
+	 *            permutation of node indices, in the order they are visited
+	 */
+	public Tour(TSP tsp, int[] walk) {
+
+		this.tsp = tsp;
+		order = walk.clone();
+		position = new int[walk.length];
+		initialise();
+	}
+
+	private void initialise() {
+		for (int p = 0; p < order.length; p++) {
+			position[order[p]] = p;
 		}
-		successor[nodes.get(nodes.size() - 1).getIndex()] = nodes.get(0).getIndex();
 		calculateLength();
 	}
 	
@@ -41,7 +61,39 @@ public class Tour {
 	 *            index of node
 	 */
 	public int getNext(int i) {
-		return successor[i];
+		int p = reversed ? position[i] - 1 : position[i] + 1;
+		return order[p < 0 ? order.length - 1 : (p == order.length ? 0 : p)];
+	}
+
+	/**
+	 * @return the index of the predecessor node of the tour
+	 * @param i
+	 *            index of node
+	 */
+	public int getPrev(int i) {
+		int p = reversed ? position[i] + 1 : position[i] - 1;
+		return order[p < 0 ? order.length - 1 : (p == order.length ? 0 : p)];
+	}
+
+	/**
+	 * @return true if b lies on the path from a to c (following successors), end points included
+	 * @param a
+	 *            index of first node
+	 * @param b
+	 *            index of node to test
+	 * @param c
+	 *            index of last node
+	 */
+	public boolean between(int a, int b, int c) {
+		int size = order.length;
+		int pa = position[a];
+		int pb = position[b];
+		int pc = position[c];
+
+		if (reversed) {
+			return (pa - pb + size) % size <= (pa - pc + size) % size;
+		}
+		return (pb - pa + size) % size <= (pc - pa + size) % size;
 	}
 
 	/**
@@ -50,7 +102,7 @@ public class Tour {
 	 *            index of node
 	 */
 	public Node getNextNode(int i) {
-		return tsp.getNodes().get(successor[i]);
+		return tsp.getNodes().get(getNext(i));
 	}
 	
 	/**
@@ -59,7 +111,7 @@ public class Tour {
 	 *            index of node
 	 */
 	public Node getNextNode(Node node) {
-		return tsp.getNodes().get(successor[node.getIndex()]);
+		return tsp.getNodes().get(getNext(node.getIndex()));
 	}
 	
 
@@ -69,127 +121,151 @@ public class Tour {
 	private void calculateLength() {
 		length = 0;
 		
-		int[][] distance = tsp.getDistanceMatrix();
+		Distance distance = tsp.getDistance();
 
-		for (int i = 0; i < successor.length; i++) {
-			length += distance[i][successor[i]];
+		for (int i = 0; i < order.length; i++) {
+			length += distance.get(i, getNext(i));
 		}
 	}
 
 	/**
-	 * Improves the tour by applying a (currently very crude and inefficient) implementation of 2-opt
+	 * Improves the tour by 2-opt, with the default settings of TwoOpt
 	 * 
-	 * @param cl
-	 *            Array of nodes to search
+	 * @param neighbours
+	 *            neighbour map of nodes to search
 	 */
-	@SuppressWarnings("unused")
 	public void twoOpt(Map<Node, List<Node>> neighbours) {
-		
-		int[][] distance = tsp.getDistanceMatrix();
-		List<Node> nodes = tsp.getNodes();
-
-		int bestDiff = 0;
-
-		final boolean[] doNotLook;
+		twoOpt(new CandidateList(tsp.getNodes(), neighbours));
+	}
 
-		if (USE_DLB) {
-			doNotLook = new boolean[tsp.getSize()];
-		}
+	/**
+	 * Improves the tour by 2-opt, with the default settings of TwoOpt
+	 * 
+	 * @param neighbours
+	 *            candidate lists of nodes to search
+	 */
+	public void twoOpt(CandidateList neighbours) {
+		new TwoOpt().improve(this, neighbours);
+	}
 
-		do {
-			int swap1 = 0;
-			int swap2 = 0;
-			bestDiff = 0;
+	/**
+	 * Replaces edges (i, successor of i) and (j, successor of j) by (i, j) and (successor of i, successor of j), by
+	 * reversing the path from the successor of i to j. The length is not updated.
+	 */
+	void twoOptMove(int i, int j) {
+		reverse(getNext(i), j);
+	}
 
-			for (Node node: nodes) {
-				
-				int i = node.getIndex();
+	/**
+	 * Moves the path from first to last (in successor order) between x and its successor, optionally reversed. x must
+	 * not be on the path. The length is not updated.
+	 */
+	void moveSegment(int first, int last, int x, boolean reverse) {
 
-				if (USE_DLB && doNotLook[i]) {
-					continue;
-				}
+		int p = getPrev(first);
+		int n = getNext(last);
 
-				boolean foundBetter = false;
+		if (x == p) {
+			// the segment stays in place
+			if (reverse) {
+				reverse(first, last);
+			}
+			return;
+		}
 
-				for (int c = 0; c < neighbours.get(node).size(); c++) {
-				
-					int j = neighbours.get(nodes.get(i)).get(c).getIndex();
+		// p [first .. last] [n .. x] y  ->  p [x .. n] [last .. first] y  ->  p [n .. x] [last .. first] y
+		reverse(first, x);
+		reverse(x, n);
 
-					if (FIXED_RADIUS && (distance[i][successor[i]] < distance[i][j])) {
-						break;
-					}
+		if (!reverse) {
+			reverse(last, first);
+		}
+	}
 
-					int oldlength = distance[i][successor[i]] + distance[j][successor[j]];
-					int newlength = distance[i][j] + distance[successor[i]][successor[j]];
-					int diff = oldlength - newlength;
+	/**
+	 * Reverses the path from first to last (in successor order), such that the predecessor of first is followed by
+	 * last and first by the successor of last. If the path covers more than half of the tour, the rest of the tour is
+	 * reversed instead and the orientation flipped, which gives the same tour.
+	 */
+	private void reverse(int first, int last) {
 
-					if (diff > 0) {
-						foundBetter = true;
+		int size = order.length;
 
-						if (diff > bestDiff) {
-							bestDiff = diff;
-							swap1 = i;
-							swap2 = j;
-						}
+		// the path occupies positions from .. to (cyclically, increasing)
+		int from = reversed ? position[last] : position[first];
+		int to = reversed ? position[first] : position[last];
+		int count = (to - from + size) % size + 1;
 
-						if (FIRST_IMPROVEMENT) {
-							break;
-						}
-					}
-				}
+		if (2 * count > size) {
+			int temp = from;
+			from = to + 1 == size ? 0 : to + 1;
+			to = temp == 0 ? size - 1 : temp - 1;
+			count = size - count;
+			reversed = !reversed;
+		}
 
-				if (FIRST_IMPROVEMENT && bestDiff > 0) {
-					break;
-				}
+		for (int k = count / 2; k > 0; k--) {
+			int a = order[from];
+			int b = order[to];
+			order[from] = b;
+			position[b] = from;
+			order[to] = a;
+			position[a] = to;
 
-				if (USE_DLB && !foundBetter) {
-					doNotLook[i] = true;
-				}
+			if (++from == size) {
+				from = 0;
 			}
+			if (--to < 0) {
+				to = size - 1;
+			}
+		}
+	}
 
-			if (bestDiff > 0) {
-
-				int nexti = successor[swap1];
-				int nextj = successor[swap2];
-
-				if (USE_DLB) {
-					doNotLook[swap2] = false;
-					doNotLook[nexti] = false;
-					doNotLook[nextj] = false;
-				}
-
-				// reverse
-				int tempNode = successor[swap1];
-				int tempNodex = successor[tempNode];
-
-				do {
-					int newTempNodex = successor[tempNodex];
-					successor[tempNodex] = tempNode;
-					tempNode = tempNodex;
-					tempNodex = newTempNodex;
-				} while (tempNode != swap2);
+	/**
+	 * Adjust the length of the tour after a move, and count the move
+	 */
+	void addLength(int delta) {
+		length += delta;
+		moves++;
+	}
 
-				// swap
-				successor[swap1] = swap2;
-				successor[nexti] = nextj;
+	Distance getDistance() {
+		return tsp.getDistance();
+	}
 
-				length -= bestDiff;
-			}
-		} while (bestDiff > 0);
+	/**
+	 * @return node indices, in the order they are visited starting at node 0
+	 */
+	public int[] getWalk() {
+		int[] walk = new int[order.length];
+		int n = 0;
+		for (int p = 0; p < order.length; p++) {
+			walk[p] = n;
+			n = getNext(n);
+		}
+		return walk;
 	}
 
+	/**
+	 * Node indices in the order they are visited, in the numbering of the input (see TSP.renumber)
+	 */
 	@Override
 	public String toString() {
-		String s = "";
-		int n = 0;
-		for (int i = 0; i < successor.length; i++) {
-			s += n + " ";
-			n = successor[n];
+		StringBuilder s = new StringBuilder();
+		for (int i : tsp.getOriginalWalk(this)) {
+			s.append(i).append(' ');
 		}
-		return s + "\n";
+		return s.append('\n').toString();
 	}
 
 	public int getLength() {
 		return length;
 	}
+
+	/**
+	 * @return number of improving moves applied to the tour by local search
+	 */
+	public int getMoves() {
+		return moves;
+	}
 }
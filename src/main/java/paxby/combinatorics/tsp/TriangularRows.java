@@ -0,0 +1,86 @@
+package paxby.combinatorics.tsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A computation over the rows of the upper triangle of a symmetric n x n matrix (row i holding entries i + 1 .. n - 1),
+ * run in parallel. Rows get shorter, so they are dealt out to the tasks in turn (task t computes rows t, t + tasks, t +
+ * 2 tasks, ...), which gives each task about the same amount of work. Rows must be independent of each other.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public abstract class TriangularRows {
+
+	public static final int PARALLEL_LIMIT = 1000; // below this size, run on the calling thread
+
+	private static final int TASKS_PER_THREAD = 4;
+
+	/**
+	 * Compute a row
+	 * 
+	 * @param i
+	 *            index of row
+	 */
+	protected abstract void computeRow(int i);
+
+	/**
+	 * Compute all rows, on the shared executor of Preprocessing if the matrix has at least PARALLEL_LIMIT rows
+	 * 
+	 * @param size
+	 *            number of rows
+	 */
+	public void run(int size) {
+		run(size, Preprocessing.getExecutor(size));
+	}
+
+	/**
+	 * Compute all rows
+	 * 
+	 * @param size
+	 *            number of rows
+	 * @param executor
+	 *            executor running the tasks, or null to compute the rows on the calling thread
+	 */
+	public void run(final int size, ExecutorService executor) {
+
+		if (executor == null) {
+			for (int i = 0; i < size; i++) {
+				computeRow(i);
+			}
+			return;
+		}
+
+		final int tasks = Math.max(1, Math.min(size, TASKS_PER_THREAD * Runtime.getRuntime().availableProcessors()));
+		List<Callable<Void>> list = new ArrayList<Callable<Void>>();
+
+		for (int t = 0; t < tasks; t++) {
+			final int first = t;
+			list.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = first; i < size; i += tasks) {
+						computeRow(i);
+					}
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> result : executor.invokeAll(list)) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing matrix", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Unable to compute matrix", e.getCause());
+		}
+	}
+}
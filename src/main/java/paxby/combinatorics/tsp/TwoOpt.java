@@ -0,0 +1,217 @@
+package paxby.combinatorics.tsp;
+
+/**
+ * 2-opt local search using neighbour lists. By default each step scans all nodes and applies the best improving move
+ * (best improvement), considering only candidates closer than the current successor (fixed radius search). With
+ * don't-look bits, only the nodes queued in the bits are looked at, and the end points of changed edges are queued
+ * after each move.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class TwoOpt implements LocalSearch {
+
+	private boolean firstImprovement = false;
+	private boolean fixedRadius = true;
+	private boolean dontLookBits = false;
+
+	@Override
+	public void improve(Tour tour, CandidateList neighbours) {
+		improve(tour, neighbours, null);
+	}
+
+	@Override
+	public void improve(Tour tour, CandidateList neighbours, Tour reference) {
+
+		if (dontLookBits) {
+			improveQueued(tour, neighbours, reference);
+		} else {
+			improveScan(tour, neighbours);
+		}
+	}
+
+	/**
+	 * Repeatedly scans all nodes for an improving move
+	 */
+	private void improveScan(Tour tour, CandidateList neighbours) {
+
+		Distance distance = tour.getDistance();
+		int size = neighbours.getSize();
+
+		int bestDiff = 0;
+
+		do {
+			int swap1 = 0;
+			int swap2 = 0;
+			bestDiff = 0;
+
+			for (int i = 0; i < size; i++) {
+
+				for (int c = neighbours.getStart(i); c < neighbours.getEnd(i); c++) {
+
+					int j = neighbours.getCandidate(c);
+					int dij = neighbours.getDistance(c);
+
+					if (fixedRadius && (distance.get(i, tour.getNext(i)) < dij)) {
+						break;
+					}
+
+					int nexti = tour.getNext(i);
+					int nextj = tour.getNext(j);
+					int oldlength = distance.get(i, nexti) + distance.get(j, nextj);
+					int newlength = dij + distance.get(nexti, nextj);
+					int diff = oldlength - newlength;
+
+					if (diff > bestDiff) {
+						bestDiff = diff;
+						swap1 = i;
+						swap2 = j;
+
+						if (firstImprovement) {
+							break;
+						}
+					}
+				}
+
+				if (firstImprovement && bestDiff > 0) {
+					break;
+				}
+			}
+
+			if (bestDiff > 0) {
+				tour.twoOptMove(swap1, swap2);
+				tour.addLength(-bestDiff);
+			}
+		} while (bestDiff > 0);
+	}
+
+	/**
+	 * Looks for improving moves from the nodes in a queue of don't-look bits until the queue is empty
+	 */
+	private void improveQueued(Tour tour, CandidateList neighbours, Tour reference) {
+
+		Distance distance = tour.getDistance();
+		DontLookBits bits = new DontLookBits(neighbours.getSize());
+
+		if (reference == null) {
+			bits.activateAll();
+		} else {
+			bits.activateChanged(tour, reference);
+		}
+
+		int a;
+		while ((a = bits.next()) >= 0) {
+			if (improve(tour, neighbours, distance, a, bits)) {
+				bits.activate(a);
+			}
+		}
+	}
+
+	/**
+	 * Looks for a move replacing an edge (a, b) of node a and an edge (c, d) of one of its candidates c by (a, c) and
+	 * (b, d), and applies it
+	 * 
+	 * @return true if an improving move was applied
+	 */
+	private boolean improve(Tour tour, CandidateList neighbours, Distance distance, int a, DontLookBits bits) {
+
+		int bestDelta = 0;
+		int bestC = -1;
+		boolean bestForward = false;
+
+		// b follows a (forward) or precedes a, and d is on the same side of c
+		for (int dir = 0; dir < 2; dir++) {
+
+			boolean forward = dir == 0;
+			int b = forward ? tour.getNext(a) : tour.getPrev(a);
+			int dab = distance.get(a, b);
+
+			for (int k = neighbours.getStart(a); k < neighbours.getEnd(a); k++) {
+
+				int c = neighbours.getCandidate(k);
+				int dac = neighbours.getDistance(k);
+
+				if (fixedRadius && dab < dac) {
+					break;
+				}
+
+				int d = forward ? tour.getNext(c) : tour.getPrev(c);
+
+				if (c == b || d == a) {
+					continue;
+				}
+
+				int delta = dab + distance.get(c, d) - dac - distance.get(b, d);
+
+				if (delta > bestDelta) {
+					bestDelta = delta;
+					bestC = c;
+					bestForward = forward;
+
+					if (firstImprovement) {
+						break;
+					}
+				}
+			}
+
+			if (firstImprovement && bestDelta > 0) {
+				break;
+			}
+		}
+
+		if (bestDelta == 0) {
+			return false;
+		}
+
+		int b = bestForward ? tour.getNext(a) : tour.getPrev(a);
+		int d = bestForward ? tour.getNext(bestC) : tour.getPrev(bestC);
+
+		if (bestForward) {
+			tour.twoOptMove(a, bestC);
+		} else {
+			tour.twoOptMove(d, b);
+		}
+		tour.addLength(-bestDelta);
+
+		bits.activate(b);
+		bits.activate(bestC);
+		bits.activate(d);
+		return true;
+	}
+
+	public boolean isFirstImprovement() {
+		return firstImprovement;
+	}
+
+	/**
+	 * @param firstImprovement
+	 *            apply the first improving move found rather than the best one
+	 */
+	public void setFirstImprovement(boolean firstImprovement) {
+		this.firstImprovement = firstImprovement;
+	}
+
+	public boolean isFixedRadius() {
+		return fixedRadius;
+	}
+
+	/**
+	 * @param fixedRadius
+	 *            only consider candidates closer to a node than its tour neighbour
+	 */
+	public void setFixedRadius(boolean fixedRadius) {
+		this.fixedRadius = fixedRadius;
+	}
+
+	public boolean isDontLookBits() {
+		return dontLookBits;
+	}
+
+	/**
+	 * @param dontLookBits
+	 *            only look at nodes near recent changes, using a queue of don't-look bits
+	 */
+	public void setDontLookBits(boolean dontLookBits) {
+		this.dontLookBits = dontLookBits;
+	}
+}
@@ -0,0 +1,119 @@
+package paxby.combinatorics.tsp;
+
+import java.util.Arrays;
+
+/**
+ * The set of nodes not yet visited by a tour under construction, answering nearest-unvisited-node queries. It keeps
+ * the number of unvisited nodes under each node of a (shared) KDTree, so that empty subtrees are skipped: removing a
+ * node is O(log n) and a query is typically O(log n), rather than a scan of all nodes. Neighbours are ranked as in
+ * KDTree. Not thread-safe; each ant needs its own instance.
+ * 
+ * @author Petter Axby
+ * 
+ */
+public class UnvisitedNodes {
+
+	private final KDTree tree;
+	private final int[] count; // number of unvisited nodes under each tree node
+	private final int[] removed; // node i is visited if removed[i] == generation
+	private int generation;
+
+	private int best, bestDistance; // current best of a query
+
+	public UnvisitedNodes(KDTree tree) {
+		this.tree = tree;
+		count = new int[tree.treeSize];
+		removed = new int[tree.x.length];
+		reset();
+	}
+
+	/**
+	 * Mark all nodes as unvisited
+	 */
+	public void reset() {
+		for (int t = 0; t < tree.treeSize; t++) {
+			count[t] = tree.hi[t] - tree.lo[t];
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(removed, 0);
+			generation = 1;
+		}
+	}
+
+	/**
+	 * Mark a node as visited
+	 * 
+	 * @param i
+	 *            index of node
+	 */
+	public void remove(int i) {
+		if (removed[i] != generation) {
+			removed[i] = generation;
+			for (int t = tree.leaf[i]; t >= 0; t = tree.parent[t]) {
+				count[t]--;
+			}
+		}
+	}
+
+	/**
+	 * Returns the nearest unvisited node
+	 * 
+	 * @param i
+	 *            index of node
+	 * @return index of the nearest unvisited node other than i, or -1 if there is none
+	 */
+	public int getNearest(int i) {
+		best = -1;
+		bestDistance = Integer.MAX_VALUE;
+
+		if (tree.treeSize > 0) {
+			search(0, i);
+		}
+		return best;
+	}
+
+	private void search(int t, int i) {
+
+		if (count[t] == 0) {
+			return;
+		}
+
+		double px = tree.x[i];
+		double py = tree.y[i];
+
+		if (best >= 0 && (int) (Math.sqrt(tree.distanceSq(t, px, py)) + 0.5) > bestDistance) {
+			return;
+		}
+
+		if (tree.left[t] < 0) {
+			for (int k = tree.lo[t]; k < tree.hi[t]; k++) {
+				int j = tree.perm[k];
+
+				if (j == i || removed[j] == generation) {
+					continue;
+				}
+
+				double dx = tree.x[j] - px;
+				double dy = tree.y[j] - py;
+				int d = (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+
+				if (d < bestDistance || (d == bestDistance && j < best)) {
+					best = j;
+					bestDistance = d;
+				}
+			}
+		} else {
+			// visit the nearest child first
+			int l = tree.left[t];
+			int r = tree.right[t];
+
+			if (tree.distanceSq(l, px, py) <= tree.distanceSq(r, px, py)) {
+				search(l, i);
+				search(r, i);
+			} else {
+				search(r, i);
+				search(l, i);
+			}
+		}
+	}
+}
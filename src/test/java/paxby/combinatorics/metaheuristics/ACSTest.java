@@ -0,0 +1,59 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.io.FileNotFoundException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import paxby.combinatorics.tsp.InvalidFileException;
+import paxby.combinatorics.tsp.TSP;
+import paxby.combinatorics.tsp.UnsupportedFileException;
+
+public class ACSTest {
+
+	TSP randomTsp;
+	ASConfig asConfigNN;
+
+	@Before
+	public void Setup() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+		randomTsp = new TSP("tsplibx/random300.tsp");
+		asConfigNN = new ASConfig();
+		asConfigNN.setRho(0.1);
+		asConfigNN.setM(10);
+	}
+
+	@Test
+	public void test_TourLength_NN() {
+
+		MetaHeuristic meta = new ACS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		assertEquals(13073, meta.solve(10).getLength());
+	}
+
+	@Test
+	public void test_TourLength_Alias() {
+
+		asConfigNN.setSelection(ASConfig.Selection.ALIAS);
+		MetaHeuristic meta = new ACS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		assertEquals(13073, meta.solve(10).getLength());
+	}
+
+	@Test
+	public void test_Greedy() {
+
+		// q0 = 1 without local update: every step takes the best candidate, whatever the random stream
+		asConfigNN.setQ0(1);
+		asConfigNN.setXi(0);
+		asConfigNN.setLocalSearch(null);
+
+		MetaHeuristic meta1 = new ACS(randomTsp, asConfigNN);
+		meta1.setSeed(1);
+		MetaHeuristic meta2 = new ACS(randomTsp, asConfigNN);
+		meta2.setSeed(2);
+
+		assertEquals(meta1.solve(3).getLength(), meta2.solve(3).getLength());
+	}
+}
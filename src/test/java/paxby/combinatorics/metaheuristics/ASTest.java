@@ -27,7 +27,23 @@ public class ASTest {
 		
 		MetaHeuristic meta = new AS(randomTsp, asConfig);
 		meta.setSeed(12345);
-		assertEquals(13241, meta.solve(3).getLength());
+		assertEquals(13293, meta.solve(3).getLength());
 	}
 
+	@Test
+	public void test_TourLength_Parallel() {
+
+		// threads = 0 constructs ants on the solver thread, otherwise they are constructed by the executor
+		MetaHeuristic meta = new AS(randomTsp, asConfig);
+		meta.setSeed(12345);
+		int length = meta.solve(3).getLength();
+
+		for (int threads: new int[] { 1, 4 }) {
+			ASConfig parallelConfig = new ASConfig();
+			parallelConfig.setThreads(threads);
+			meta = new AS(randomTsp, parallelConfig);
+			meta.setSeed(12345);
+			assertEquals(length, meta.solve(3).getLength());
+		}
+	}
 }
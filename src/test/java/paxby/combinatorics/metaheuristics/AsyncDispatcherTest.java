@@ -0,0 +1,108 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import paxby.combinatorics.tsp.InvalidFileException;
+import paxby.combinatorics.tsp.TSP;
+import paxby.combinatorics.tsp.Tour;
+import paxby.combinatorics.tsp.UnsupportedFileException;
+
+public class AsyncDispatcherTest {
+
+	TSP randomTsp;
+	ASConfig asConfigNN;
+
+	@Before
+	public void Setup() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+		randomTsp = new TSP("tsplibx/random300.tsp");
+		asConfigNN = new ASConfig();
+	}
+
+	/**
+	 * Records events, slowly
+	 */
+	private static class SlowListener implements MetaHeuristicEventListener {
+
+		final List<Integer> iterations = new ArrayList<Integer>();
+		final List<Tour> tours = new ArrayList<Tour>();
+
+		@Override
+		public void newIteration(int i) {
+			iterations.add(i);
+			sleep();
+		}
+
+		@Override
+		public void newTour(Tour tour) {
+			tours.add(tour);
+			sleep();
+		}
+
+		private void sleep() {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Test
+	public void test_SlowListener() throws InterruptedException {
+
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+
+		AsyncDispatcher dispatcher = new AsyncDispatcher(meta, 2);
+		SlowListener listener = new SlowListener();
+		dispatcher.addListener(listener);
+
+		Tour best = meta.solve(10);
+		dispatcher.close();
+
+		// iterations are coalesced, but the last one is always delivered
+		assertFalse(listener.iterations.isEmpty());
+		assertEquals(10, (int) listener.iterations.get(listener.iterations.size() - 1));
+		for (int i = 1; i < listener.iterations.size(); i++) {
+			assertTrue(listener.iterations.get(i) > listener.iterations.get(i - 1));
+		}
+
+		// tours arrive in order, ending with the best tour, unless dropped
+		assertSame(best, listener.tours.get(listener.tours.size() - 1));
+		for (int i = 1; i < listener.tours.size(); i++) {
+			assertTrue(listener.tours.get(i).getLength() < listener.tours.get(i - 1).getLength());
+		}
+
+		MetaHeuristic.Snapshot snapshot = dispatcher.getSnapshot();
+		assertNotNull(snapshot);
+		assertTrue(snapshot.getIteration() >= 1 && snapshot.getIteration() <= 10);
+		assertTrue(snapshot.getBranchingFactor() > 0);
+		assertNotNull(snapshot.getBestTour());
+	}
+
+	@Test
+	public void test_Capacity() throws InterruptedException {
+
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		AsyncDispatcher dispatcher = new AsyncDispatcher(meta, 1);
+		SlowListener listener = new SlowListener();
+		dispatcher.addListener(listener);
+
+		// events while the listener is busy with the first one
+		Tour tour1 = meta.solve(1);
+		dispatcher.newTour(tour1);
+		dispatcher.newTour(tour1);
+		dispatcher.newTour(tour1);
+		dispatcher.close();
+
+		assertTrue(dispatcher.getDropped() > 0);
+		assertTrue(listener.tours.size() <= 3);
+	}
+}
@@ -0,0 +1,126 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import paxby.combinatorics.tsp.InvalidFileException;
+import paxby.combinatorics.tsp.TSP;
+import paxby.combinatorics.tsp.TwoOpt;
+import paxby.combinatorics.tsp.UnsupportedFileException;
+
+public class CheckpointTest {
+
+	TSP randomTsp;
+	ASConfig asConfigNN;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void Setup() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+		randomTsp = new TSP("tsplibx/random300.tsp");
+		asConfigNN = new ASConfig();
+	}
+
+	@Test
+	public void test_Resume() throws IOException {
+
+		Checkpoint checkpoint = new Checkpoint(folder.getRoot() + "/mmas.chk");
+
+		MMAS meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		meta.setCheckpoint(checkpoint, 3);
+		meta.solve(3);
+		int length = meta.solve(8).getLength();
+		checkpoint.close();
+
+		// a new colony continues from iteration 6, the latest checkpoint, as the original one did
+		MMAS resumed = new MMAS(randomTsp, asConfigNN);
+		assertTrue(checkpoint.restore(resumed));
+		assertEquals(6, resumed.getIteration());
+		assertEquals(length, resumed.solve(8).getLength());
+	}
+
+	@Test
+	public void test_Resume_Lazy_DontLookBits() throws IOException {
+
+		TwoOpt twoOpt = new TwoOpt();
+		twoOpt.setDontLookBits(true);
+		asConfigNN.setLocalSearch(twoOpt);
+		asConfigNN.setLazyEvaporation(true);
+		Checkpoint checkpoint = new Checkpoint(folder.getRoot() + "/lazy.chk");
+
+		MMAS meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		meta.setCheckpoint(checkpoint, 2);
+		meta.solve(5);
+		checkpoint.close();
+
+		MMAS resumed = new MMAS(randomTsp, asConfigNN);
+		assertTrue(checkpoint.restore(resumed));
+		assertEquals(4, resumed.getIteration());
+
+		MMAS uninterrupted = new MMAS(randomTsp, asConfigNN);
+		uninterrupted.setSeed(12345);
+		assertEquals(uninterrupted.solve(8).getLength(), resumed.solve(8).getLength());
+	}
+
+	@Test
+	public void test_NoCheckpoint() throws IOException {
+
+		MMAS meta = new MMAS(randomTsp, asConfigNN);
+		assertFalse(new Checkpoint(folder.getRoot() + "/none.chk").restore(meta));
+	}
+
+	@Test(expected = IOException.class)
+	public void test_Mismatch() throws IOException {
+
+		Checkpoint checkpoint = new Checkpoint(folder.getRoot() + "/mismatch.chk");
+
+		MMAS meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		meta.solve(1);
+		checkpoint.save(meta);
+		checkpoint.close();
+
+		asConfigNN.setLazyEvaporation(true);
+		checkpoint.restore(new MMAS(randomTsp, asConfigNN));
+	}
+
+	@Test
+	public void test_Overwrite() throws IOException {
+
+		Checkpoint checkpoint = new Checkpoint(folder.getRoot() + "/other.chk");
+
+		MMAS meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		meta.solve(1);
+		checkpoint.save(meta);
+		checkpoint.close();
+
+		// the checkpoint of another configuration is kept
+		asConfigNN.setLazyEvaporation(true);
+		MMAS other = new MMAS(randomTsp, asConfigNN);
+		other.solve(1);
+		try {
+			checkpoint.save(other);
+			fail("Checkpoint overwritten");
+		} catch (IOException e) {
+			// expected
+		}
+		assertTrue(checkpoint.restore(new MMAS(randomTsp, new ASConfig())));
+
+		// unless overwriting is enabled
+		checkpoint.setOverwrite(true);
+		checkpoint.save(other);
+		assertTrue(checkpoint.restore(new MMAS(randomTsp, asConfigNN)));
+		checkpoint.close();
+	}
+}
@@ -0,0 +1,145 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import paxby.combinatorics.tsp.InvalidFileException;
+import paxby.combinatorics.tsp.TSP;
+import paxby.combinatorics.tsp.Tour;
+import paxby.combinatorics.tsp.UnsupportedFileException;
+
+public class LimitsTest {
+
+	TSP randomTsp;
+	ASConfig asConfigNN;
+
+	@Before
+	public void Setup() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+		randomTsp = new TSP("tsplibx/random300.tsp");
+		asConfigNN = new ASConfig();
+	}
+
+	@Test
+	public void test_Iterations() {
+
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+
+		Limits limits = new Limits();
+		limits.setMaxIterations(3);
+		SolveResult result = meta.solve(limits);
+
+		// same as solve(3)
+		assertEquals(13514, result.getBestTour().getLength());
+		assertEquals(SolveResult.StopReason.ITERATIONS, result.getStopReason());
+		assertEquals(3, result.getIterations());
+	}
+
+	@Test
+	public void test_TargetLength() {
+
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+
+		Limits limits = new Limits();
+		limits.setTargetLength(13700);
+		SolveResult result = meta.solve(limits);
+
+		assertEquals(SolveResult.StopReason.TARGET_LENGTH, result.getStopReason());
+		assertTrue(result.getBestTour().getLength() <= 13700);
+	}
+
+	@Test
+	public void test_Deadline() {
+
+		// iterations far longer than the time limit, so that the search stops between ants
+		asConfigNN.setM(1000000);
+		asConfigNN.setMetrics(true);
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+
+		Limits limits = new Limits();
+		limits.setTimeLimit(300, TimeUnit.MILLISECONDS);
+		SolveResult result = meta.solve(limits);
+
+		assertEquals(SolveResult.StopReason.DEADLINE, result.getStopReason());
+		assertEquals(0, result.getIterations());
+		assertEquals(0, meta.getIteration());
+		assertNotNull(result.getBestTour());
+		assertSame(result.getBestTour(), meta.getBestTour());
+		assertTrue(result.getElapsedNanos() < TimeUnit.SECONDS.toNanos(2));
+
+		// the stopped iteration is not timed
+		assertEquals(0, meta.getMetrics().getSnapshot().getCount(Metrics.Phase.ITERATION));
+
+		// nor does it replace the starting point of local search
+		assertNull(((AS) meta).getReference());
+	}
+
+	@Test
+	public void test_NegativeNanoTime() {
+
+		// System.nanoTime() may be negative: no deadline stays no deadline, and explicit deadlines are kept
+		long start = Long.MIN_VALUE + 1000;
+
+		Limits limits = new Limits();
+		assertFalse(limits.hasDeadline());
+
+		limits.setDeadline(start + 500);
+		assertTrue(limits.hasDeadline());
+		assertEquals(start + 500, limits.getDeadline(start));
+
+		limits.setTimeLimit(100, TimeUnit.NANOSECONDS);
+		assertEquals(start + 100, limits.getDeadline(start));
+	}
+
+	@Test
+	public void test_FirstIteration_KeepsBest() {
+
+		MetaHeuristic good = new MMAS(randomTsp, asConfigNN);
+		good.setSeed(12345);
+		Tour best = good.solve(10);
+
+		// e.g. the best tour of a stopped first iteration: not replaced by a longer tour of the first full iteration
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		meta.offerTour(best);
+		assertSame(best, meta.solve(1));
+	}
+
+	@Test
+	public void test_Cancel() throws InterruptedException {
+
+		asConfigNN.setThreads(2);
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		final Limits limits = new Limits();
+
+		Thread canceller = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(300);
+				} catch (InterruptedException e) {
+					return;
+				}
+				limits.cancel();
+			}
+		});
+		canceller.start();
+
+		SolveResult result = meta.solve(limits);
+		canceller.join();
+
+		assertEquals(SolveResult.StopReason.CANCELLED, result.getStopReason());
+		assertNotNull(result.getBestTour());
+
+		// cancelled before start
+		result = meta.solve(limits);
+		assertEquals(SolveResult.StopReason.CANCELLED, result.getStopReason());
+		assertEquals(0, result.getIterations());
+	}
+}
@@ -3,13 +3,18 @@ package paxby.combinatorics.metaheuristics;
 import java.io.FileNotFoundException;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.*;
 
+import paxby.combinatorics.tsp.InstanceCache;
 import paxby.combinatorics.tsp.InvalidFileException;
+import paxby.combinatorics.tsp.LinKernighan;
 import paxby.combinatorics.tsp.QNearestNeighbourStrategy;
 import paxby.combinatorics.tsp.TSP;
+import paxby.combinatorics.tsp.TwoOpt;
 import paxby.combinatorics.tsp.UnsupportedFileException;
 
 public class MMASTest {
@@ -31,7 +36,7 @@ public class MMASTest {
 		
 		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
 		meta.setSeed(12345);
-		assertEquals(13607, meta.solve(3).getLength());
+		assertEquals(13514, meta.solve(3).getLength());
 	}
 
 	@Test
@@ -39,7 +44,69 @@ public class MMASTest {
 		
 		MetaHeuristic meta = new MMAS(randomTsp, asConfigQNN);
 		meta.setSeed(12345);
-		assertEquals(13399, meta.solve(10).getLength());
+		assertEquals(13305, meta.solve(10).getLength());
+	}
+
+	@Test
+	public void test_TourLength_Sparse() {
+		
+		asConfigNN.setPheromoneStorage(ASConfig.PheromoneStorage.SPARSE);
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		assertEquals(13382, meta.solve(10).getLength());
+	}
+
+	@Test
+	public void test_TourLength_LazyEvaporation() {
+		
+		asConfigNN.setLazyEvaporation(true);
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		assertEquals(13514, meta.solve(3).getLength());
+	}
+
+	@Test
+	public void test_TourLength_DontLookBits() {
+		
+		TwoOpt twoOpt = new TwoOpt();
+		twoOpt.setDontLookBits(true);
+		asConfigNN.setLocalSearch(twoOpt);
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		assertEquals(13300, meta.solve(10).getLength());
+	}
+
+	@Test
+	public void test_TourLength_Alias() {
+		
+		asConfigNN.setSelection(ASConfig.Selection.ALIAS);
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		assertEquals(13330, meta.solve(10).getLength());
+	}
+
+	@Test
+	public void test_TourLength_LinKernighan() {
+		
+		asConfigNN.setLocalSearch(new LinKernighan());
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		assertEquals(12873, meta.solve(3).getLength());
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void test_TourLength_InstanceCache() throws Exception {
+
+		InstanceCache cache = new InstanceCache(folder.getRoot().getPath());
+		asConfigNN.setInstanceCache(cache);
+
+		for (int run = 0; run < 2; run++) {
+			MetaHeuristic meta = new MMAS(cache.load("tsplibx/random300.tsp"), asConfigNN);
+			meta.setSeed(12345);
+			assertEquals(13514, meta.solve(3).getLength());
+		}
 	}
-	
 }
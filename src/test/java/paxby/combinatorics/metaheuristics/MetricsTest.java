@@ -0,0 +1,103 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.io.FileNotFoundException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import paxby.combinatorics.tsp.InvalidFileException;
+import paxby.combinatorics.tsp.TSP;
+import paxby.combinatorics.tsp.UnsupportedFileException;
+
+public class MetricsTest {
+
+	TSP randomTsp;
+	ASConfig asConfigNN;
+
+	@Before
+	public void Setup() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+		randomTsp = new TSP("tsplibx/random300.tsp");
+		asConfigNN = new ASConfig();
+	}
+
+	@Test
+	public void test_Disabled() {
+
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+		meta.solve(3);
+
+		Metrics.Snapshot snapshot = meta.getMetrics().getSnapshot();
+		assertFalse(meta.getMetrics().isEnabled());
+		assertEquals(0, snapshot.getCount(Metrics.Phase.ITERATION));
+		assertEquals(0, snapshot.getCount(Metrics.Counter.TOURS));
+	}
+
+	@Test
+	public void test_Enabled() {
+
+		asConfigNN.setMetrics(true);
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.setSeed(12345);
+
+		// same result as without metrics
+		assertEquals(13514, meta.solve(3).getLength());
+
+		Metrics.Snapshot snapshot = meta.getMetrics().getSnapshot();
+		assertEquals(3, snapshot.getCount(Metrics.Phase.ITERATION));
+		assertEquals(3, snapshot.getCount(Metrics.Phase.EVAPORATION));
+		assertEquals(3, snapshot.getCount(Metrics.Phase.DEPOSIT));
+		assertEquals(3 * asConfigNN.getM(), snapshot.getCount(Metrics.Phase.CONSTRUCTION));
+		assertEquals(3 * asConfigNN.getM(), snapshot.getCount(Metrics.Phase.LOCAL_SEARCH));
+		assertEquals(3 * asConfigNN.getM(), snapshot.getCount(Metrics.Counter.TOURS));
+		assertTrue(snapshot.getCount(Metrics.Counter.MOVES) > 0);
+		assertTrue(snapshot.getTotalNanos(Metrics.Phase.ITERATION) >= snapshot.getMaxNanos(Metrics.Phase.ITERATION));
+		assertTrue(snapshot.getPercentileNanos(Metrics.Phase.ITERATION, 100) >= snapshot
+				.getMaxNanos(Metrics.Phase.ITERATION));
+
+		meta.getMetrics().reset();
+		assertEquals(0, meta.getMetrics().getSnapshot().getCount(Metrics.Phase.ITERATION));
+	}
+
+	@Test
+	public void test_MBean() throws Exception {
+
+		asConfigNN.setMetrics(true);
+		MetaHeuristic meta = new MMAS(randomTsp, asConfigNN);
+		meta.getMetrics().registerMBean("test");
+
+		try {
+			meta.solve(2);
+
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("paxby.combinatorics:type=Metrics,name=\"test\"");
+			assertEquals(2L, server.getAttribute(name, "Iterations"));
+			assertEquals(2L * asConfigNN.getM(), server.getAttribute(name, "ToursBuilt"));
+		} finally {
+			meta.getMetrics().unregisterMBean();
+		}
+	}
+
+	@Test
+	public void test_Histogram() {
+
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.getPercentile(50));
+
+		for (int v = 1; v <= 100; v++) {
+			histogram.record(v);
+		}
+		histogram.record(0);
+
+		assertEquals(101, histogram.getCount());
+		assertEquals(63, histogram.getPercentile(50)); // 51st value is 50, in [32, 64)
+		assertEquals(127, histogram.getPercentile(100));
+		assertEquals(1, histogram.getPercentile(1));
+	}
+}
@@ -0,0 +1,121 @@
+package paxby.combinatorics.metaheuristics;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import paxby.combinatorics.tsp.InvalidFileException;
+import paxby.combinatorics.tsp.TSP;
+import paxby.combinatorics.tsp.Tour;
+import paxby.combinatorics.tsp.UnsupportedFileException;
+
+public class MultiColonyMMASTest {
+
+	TSP randomTsp;
+	ASConfig asConfigNN;
+
+	@Before
+	public void Setup() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+		randomTsp = new TSP("tsplibx/random300.tsp");
+		asConfigNN = new ASConfig();
+	}
+
+	@Test
+	public void test_TourLength_Ring() {
+
+		MultiColonyMMAS meta = new MultiColonyMMAS(randomTsp, asConfigNN, 4);
+		meta.setMigrationInterval(2);
+		meta.setSeed(12345);
+		assertEquals(13241, meta.solve(12).getLength());
+	}
+
+	@Test
+	public void test_TourLength_FullyConnected() {
+
+		MultiColonyMMAS meta = new MultiColonyMMAS(randomTsp, asConfigNN, 4);
+		meta.setMigrationInterval(2);
+		meta.setTopology(MultiColonyMMAS.Topology.FULLY_CONNECTED);
+		meta.setSeed(12345);
+		assertEquals(13241, meta.solve(12).getLength());
+	}
+
+	@Test
+	public void test_Listeners() {
+
+		final int[] iterations = new int[1];
+		final int[] best = { Integer.MAX_VALUE };
+
+		MultiColonyMMAS meta = new MultiColonyMMAS(randomTsp, asConfigNN, 3);
+		meta.setSeed(1);
+		meta.addListener(new MetaHeuristicEventListener() {
+			@Override
+			public void newIteration(int i) {
+				iterations[0] = i;
+			}
+
+			@Override
+			public void newTour(Tour tour) {
+				assertTrue(tour.getLength() < best[0]);
+				best[0] = tour.getLength();
+			}
+		});
+
+		Tour tour = meta.solve(4);
+
+		assertEquals(4, iterations[0]);
+		assertEquals(tour.getLength(), best[0]);
+	}
+
+	@Test
+	public void test_SharedThreads() {
+
+		for (int i = 0; i < 3; i++) {
+			MultiColonyMMAS meta = new MultiColonyMMAS(randomTsp, asConfigNN, 4);
+			meta.setSeed(i);
+			meta.solve(1);
+		}
+
+		// instances share one pool of colony threads, rather than each leaving its own behind
+		int threads = 0;
+		for (Thread thread: Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("colony")) {
+				threads++;
+			}
+		}
+		assertTrue(threads <= Runtime.getRuntime().availableProcessors());
+	}
+
+	@Test
+	public void test_Cancel() throws InterruptedException {
+
+		// rounds far longer than the test, so that the colonies must stop between ants
+		asConfigNN.setM(1000000);
+		MultiColonyMMAS meta = new MultiColonyMMAS(randomTsp, asConfigNN, 2);
+		final Limits limits = new Limits();
+
+		Thread canceller = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(300);
+				} catch (InterruptedException e) {
+					return;
+				}
+				limits.cancel();
+			}
+		});
+		canceller.start();
+
+		SolveResult result = meta.solve(limits);
+		canceller.join();
+
+		assertEquals(SolveResult.StopReason.CANCELLED, result.getStopReason());
+		assertEquals(0, result.getIterations());
+		assertNotNull(result.getBestTour());
+		assertTrue(result.getElapsedNanos() < TimeUnit.SECONDS.toNanos(2));
+	}
+}
@@ -0,0 +1,45 @@
+package paxby.combinatorics.tsp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CandidateListTest {
+
+	Node n0, n1, n2;
+	List<Node> nodes;
+
+	@Before
+	public void setUp() {
+		n0 = new Node(0, 1,3);
+		n1 = new Node(1, 1,4);
+		n2 = new Node(2, 4,9);
+		nodes = Arrays.asList(new Node[] { n0, n1, n2 });
+	}
+
+	@Test
+	public void test_CandidateList() {
+
+		CandidateList cl = new NearestNeighbourStrategy().getCandidateList(nodes, 2);
+
+		assertEquals(3, cl.getSize());
+		assertEquals(2, cl.getCount(2));
+		assertEquals(1, cl.getCandidate(cl.getStart(2)));
+		assertEquals(6, cl.getDistance(cl.getStart(2)));
+		assertEquals(0, cl.getCandidate(cl.getStart(2) + 1));
+		assertEquals(7, cl.getDistance(cl.getStart(2) + 1));
+	}
+
+	@Test
+	public void test_asMap() {
+
+		Map<Node, List<Node>> neighbours = new NearestNeighbourStrategy().getCandidateList(nodes, 2).asMap(nodes);
+		assertEquals(new NearestNeighbourStrategy().getMap(nodes), neighbours);
+		assertEquals(Arrays.asList(new Node[] { n1, n0 }), neighbours.get(n2));
+	}
+}
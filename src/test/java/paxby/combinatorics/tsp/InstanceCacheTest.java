@@ -0,0 +1,130 @@
+package paxby.combinatorics.tsp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InstanceCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	InstanceCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new InstanceCache(folder.getRoot().getPath());
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+
+		TSP tsp = new TSP("tsplibx/clusters100.tsp");
+
+		for (int run = 0; run < 2; run++) {
+			TSP cached = cache.load("tsplibx/clusters100.tsp");
+			assertEquals(tsp.getName(), cached.getName());
+			assertEquals(tsp.getSize(), cached.getSize());
+
+			for (int i = 0; i < tsp.getSize(); i++) {
+				assertEquals(tsp.getNodes().get(i).getX(), cached.getNodes().get(i).getX(), 0);
+				assertEquals(tsp.getNodes().get(i).getY(), cached.getNodes().get(i).getY(), 0);
+			}
+		}
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testCandidateList() throws Exception {
+
+		TSP tsp = new TSP("tsplibx/random100.tsp");
+		NeighbourStrategy strategy = new QNearestNeighbourStrategy();
+		CandidateList expected = strategy.getCandidateList(tsp.getNodes(), 10);
+
+		for (int run = 0; run < 2; run++) {
+			CandidateList list = cache.getCandidateList(new TSP("tsplibx/random100.tsp"), strategy, 10);
+			assertEquals(expected.getTotal(), list.getTotal());
+
+			for (int i = 0; i < tsp.getSize(); i++) {
+				assertEquals(expected.getStart(i), list.getStart(i));
+			}
+			for (int k = 0; k < expected.getTotal(); k++) {
+				assertEquals(expected.getCandidate(k), list.getCandidate(k));
+				assertEquals(expected.getDistance(k), list.getDistance(k));
+			}
+		}
+
+		assertEquals(-1, cache.getNNTourLength(tsp, strategy, 10));
+		cache.putNNTourLength(tsp, strategy, 10, 1234);
+		assertEquals(1234, cache.getNNTourLength(tsp, strategy, 10));
+		assertEquals(-1, cache.getNNTourLength(tsp, strategy, 11));
+	}
+
+	@Test
+	public void testTruncatedFile() throws Exception {
+
+		TSP tsp = new TSP("tsplibx/random100.tsp");
+		NeighbourStrategy strategy = new NearestNeighbourStrategy();
+		CandidateList expected = cache.getCandidateList(tsp, strategy, 10);
+
+		File file = folder.getRoot().listFiles()[0];
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		out.setLength(file.length() / 2);
+		out.close();
+
+		CandidateList list = cache.getCandidateList(tsp, strategy, 10);
+		assertEquals(expected.getTotal(), list.getTotal());
+		assertEquals(expected.getCandidate(expected.getTotal() - 1), list.getCandidate(list.getTotal() - 1));
+	}
+
+	@Test
+	public void testCorruptHeader() throws Exception {
+
+		TSP tsp = new TSP("tsplibx/random100.tsp");
+		cache.load("tsplibx/random100.tsp");
+		File nodes = folder.getRoot().listFiles()[0];
+
+		// name length (after the 12 byte header): huge, then negative
+		for (int length: new int[] { Integer.MAX_VALUE, -1 }) {
+			writeInt(nodes, 12, length);
+			TSP cached = cache.load("tsplibx/random100.tsp");
+			assertEquals(tsp.getSize(), cached.getSize());
+			assertEquals(tsp.getNodes().get(99).getX(), cached.getNodes().get(99).getX(), 0);
+		}
+
+		NeighbourStrategy strategy = new NearestNeighbourStrategy();
+		CandidateList expected = cache.getCandidateList(tsp, strategy, 10);
+		File candidates = null;
+		for (File file: folder.getRoot().listFiles()) {
+			if (file.getName().endsWith(".candidates")) {
+				candidates = file;
+			}
+		}
+
+		// offsets (after the header and the number of nodes): decreasing, then a huge total
+		int[][] corruptions = { { 20, -5 }, { 16 + 4 * 100, Integer.MAX_VALUE } };
+		for (int[] corruption: corruptions) {
+			writeInt(candidates, corruption[0], corruption[1]);
+			CandidateList list = cache.getCandidateList(tsp, strategy, 10);
+			assertEquals(expected.getTotal(), list.getTotal());
+			assertEquals(expected.getStart(1), list.getStart(1));
+		}
+	}
+
+	private static void writeInt(File file, long position, int value) throws IOException {
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.seek(position);
+			out.writeInt(value);
+		} finally {
+			out.close();
+		}
+	}
+}
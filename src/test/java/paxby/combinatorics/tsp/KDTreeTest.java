@@ -0,0 +1,127 @@
+package paxby.combinatorics.tsp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class KDTreeTest {
+
+	List<Node> nodes;
+
+	@Before
+	public void setUp() {
+		Random ran = new Random(12345);
+		nodes = new ArrayList<Node>();
+		for (int i = 0; i < 500; i++) {
+			// coarse grid, to get plenty of ties
+			nodes.add(new Node(i, ran.nextInt(40), ran.nextInt(40)));
+		}
+	}
+
+	@Test
+	public void test_getNearest() {
+
+		KDTree tree = new KDTree(nodes);
+
+		for (Node node: nodes) {
+			List<Node> list = new ArrayList<Node>(nodes);
+			list.remove(node);
+			Collections.sort(list, new NNComparator(node));
+
+			assertArrayEquals(toIndices(list.subList(0, 12)), tree.getNearest(node.getIndex(), 12));
+		}
+	}
+
+	@Test
+	public void test_getNearestDistance() {
+
+		KDTree tree = new KDTree(nodes);
+		Random ran = new Random(1);
+
+		for (int k = 0; k < 200; k++) {
+			// arbitrary points, and nodes excluding themselves (duplicates give 0)
+			Node point = k % 2 == 0 ? new Node(-1, ran.nextDouble() * 50 - 5, ran.nextDouble() * 50 - 5)
+					: nodes.get(ran.nextInt(nodes.size()));
+
+			double d = Double.POSITIVE_INFINITY;
+			for (Node node: nodes) {
+				if (node != point) {
+					d = Math.min(d, point.distTo(node));
+				}
+			}
+			assertEquals(d, tree.getNearestDistance(point.getX(), point.getY(), point.getIndex()), 0);
+		}
+	}
+
+	@Test
+	public void test_getNearest_Quadrant() {
+
+		KDTree tree = new KDTree(nodes);
+
+		for (Node node: nodes) {
+			for (int q = 0; q < 4; q++) {
+				List<Node> list = new ArrayList<Node>();
+				for (Node other: nodes) {
+					int quadrant = (other.getX() < node.getX() ? 0 : 2) + (other.getY() < node.getY() ? 0 : 1);
+					if (other != node && quadrant == q) {
+						list.add(other);
+					}
+				}
+				Collections.sort(list, new NNComparator(node));
+
+				int[] nearest = tree.getNearest(node.getIndex(), 5, q);
+				assertArrayEquals(toIndices(list.subList(0, Math.min(5, list.size()))), nearest);
+			}
+		}
+	}
+
+	@Test
+	public void test_getNearest_All() {
+		assertEquals(nodes.size() - 1, new KDTree(nodes).getNearest(0, nodes.size()).length);
+	}
+
+	@Test
+	public void test_UnvisitedNodes() {
+
+		UnvisitedNodes unvisited = new UnvisitedNodes(new KDTree(nodes));
+
+		for (int run = 0; run < 2; run++) {
+			List<Node> list = new ArrayList<Node>(nodes);
+			Collections.shuffle(list, new Random(run));
+			unvisited.reset();
+
+			// visit nodes in random order, checking the nearest unvisited node of each against brute force
+			for (int k = 0; k < list.size(); k++) {
+				Node node = list.get(k);
+				unvisited.remove(node.getIndex());
+
+				List<Node> rest = new ArrayList<Node>(list.subList(k + 1, list.size()));
+				Collections.sort(rest, new Comparator<Node>() {
+					@Override
+					public int compare(Node a, Node b) {
+						return a.getIndex() - b.getIndex();
+					}
+				});
+				Collections.sort(rest, new NNComparator(node)); // stable, so ties are ordered by index
+				int expected = rest.isEmpty() ? -1 : rest.get(0).getIndex();
+				assertEquals(expected, unvisited.getNearest(node.getIndex()));
+			}
+		}
+	}
+
+	private static int[] toIndices(List<Node> list) {
+		int[] indices = new int[list.size()];
+		for (int i = 0; i < list.size(); i++) {
+			indices[i] = list.get(i).getIndex();
+		}
+		return indices;
+	}
+}
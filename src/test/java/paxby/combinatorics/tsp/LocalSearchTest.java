@@ -0,0 +1,146 @@
+package paxby.combinatorics.tsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalSearchTest {
+
+	TSP tsp;
+	CandidateList neighbours;
+
+	@Before
+	public void setUp() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+		tsp = new TSP("tsplibx/random300.tsp");
+		neighbours = new NearestNeighbourStrategy().getCandidateList(tsp.getNodes(), 10);
+	}
+
+	private Tour getRandomTour(long seed) {
+		List<Node> nodes = new ArrayList<Node>(tsp.getNodes());
+		Collections.shuffle(nodes, new Random(seed));
+		return new Tour(tsp, nodes);
+	}
+
+	/**
+	 * Checks that the tour is a Hamiltonian cycle with consistent links and length
+	 */
+	private void assertValid(Tour tour) {
+
+		boolean[] visited = new boolean[tsp.getSize()];
+		int length = 0;
+		int i = 0;
+
+		for (int k = 0; k < tsp.getSize(); k++) {
+			assertTrue(!visited[i]);
+			visited[i] = true;
+			assertEquals(i, tour.getPrev(tour.getNext(i)));
+			length += tsp.getDistance().get(i, tour.getNext(i));
+			i = tour.getNext(i);
+		}
+		assertEquals(0, i);
+		assertEquals(length, tour.getLength());
+	}
+
+	private void testLocalSearch(LocalSearch localSearch) {
+		for (long seed = 0; seed < 5; seed++) {
+			Tour tour = getRandomTour(seed);
+			int length = tour.getLength();
+			localSearch.improve(tour, neighbours);
+			assertValid(tour);
+			assertTrue(tour.getLength() < length / 2);
+		}
+	}
+
+	@Test
+	public void test_TwoOpt() {
+		testLocalSearch(new TwoOpt());
+	}
+
+	@Test
+	public void test_TwoOpt_Options() {
+
+		TwoOpt twoOpt = new TwoOpt();
+		twoOpt.setFirstImprovement(true);
+		testLocalSearch(twoOpt);
+
+		twoOpt.setDontLookBits(true);
+		testLocalSearch(twoOpt);
+
+		twoOpt.setFirstImprovement(false);
+		testLocalSearch(twoOpt);
+	}
+
+	@Test
+	public void test_Reference() {
+
+		TwoOpt twoOpt = new TwoOpt();
+		twoOpt.setDontLookBits(true);
+
+		Tour reference = getRandomTour(0);
+		twoOpt.improve(reference, neighbours);
+
+		// the reference tour is a local optimum, so nothing is queued and nothing changes
+		Tour tour = new Tour(tsp, walk(reference));
+		twoOpt.improve(tour, neighbours, reference);
+		assertEquals(reference.getLength(), tour.getLength());
+
+		tour = getRandomTour(1);
+		int length = tour.getLength();
+		twoOpt.improve(tour, neighbours, reference);
+		assertValid(tour);
+		assertTrue(tour.getLength() < length / 2);
+	}
+
+	private int[] walk(Tour tour) {
+		int[] walk = new int[tsp.getSize()];
+		for (int i = 1; i < walk.length; i++) {
+			walk[i] = tour.getNext(walk[i - 1]);
+		}
+		return walk;
+	}
+
+	@Test
+	public void test_OrOpt() {
+		testLocalSearch(new OrOpt());
+	}
+
+	@Test
+	public void test_ThreeOpt() {
+		testLocalSearch(new ThreeOpt());
+
+		Tour tour = getRandomTour(0);
+		new TwoOpt().improve(tour, neighbours);
+		int length = tour.getLength();
+		new ThreeOpt().improve(tour, neighbours);
+		assertValid(tour);
+		assertTrue(tour.getLength() < length);
+	}
+
+	@Test
+	public void test_LinKernighan() {
+		testLocalSearch(new LinKernighan());
+
+		int twoOpt = 0;
+		int lk = 0;
+
+		for (long seed = 0; seed < 5; seed++) {
+			Tour tour = getRandomTour(seed);
+			new TwoOpt().improve(tour, neighbours);
+			twoOpt += tour.getLength();
+
+			tour = getRandomTour(seed);
+			new LinKernighan().improve(tour, neighbours);
+			assertValid(tour);
+			lk += tour.getLength();
+		}
+		assertTrue(lk < twoOpt);
+	}
+}
@@ -0,0 +1,86 @@
+package paxby.combinatorics.tsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TSPLIBReaderTest {
+
+	private static final String HEADER = "NAME : small\nCOMMENT : Test\nTYPE : TSP\nDIMENSION : 3\n"
+			+ "EDGE_WEIGHT_TYPE : EUC_2D\nNODE_COORD_SECTION\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String write(String content, boolean gzip) throws IOException {
+		File file = File.createTempFile("test", gzip ? ".tsp.gz" : ".tsp", folder.getRoot());
+		OutputStream out = new FileOutputStream(file);
+		if (gzip) {
+			out = new GZIPOutputStream(out);
+		}
+		out.write(content.getBytes(StandardCharsets.UTF_8));
+		out.close();
+		return file.getPath();
+	}
+
+	private void assertInvalid(String content, int line, int column) throws Exception {
+		try {
+			new TSP(write(content, false));
+			fail();
+		} catch (InvalidFileException e) {
+			assertEquals(e.getMessage(), line, e.getLine());
+			assertEquals(e.getMessage(), column, e.getColumn());
+		}
+	}
+
+	@Test
+	public void testCoordinates() throws Exception {
+
+		String content = HEADER + "1 308 163\n  2\t0.1 -2.25e1\r\n3 12345678.123456789 1E3\nEOF\n";
+
+		for (boolean gzip: new boolean[] { false, true }) {
+			TSP tsp = new TSP(write(content, gzip));
+
+			assertEquals("small", tsp.getName());
+			assertEquals(3, tsp.getSize());
+			assertEquals(308, tsp.getNodes().get(0).getX(), 0);
+			assertEquals(0.1, tsp.getNodes().get(1).getX(), 0);
+			assertEquals(-22.5, tsp.getNodes().get(1).getY(), 0);
+			assertEquals(12345678.123456789, tsp.getNodes().get(2).getX(), 0);
+			assertEquals(1000, tsp.getNodes().get(2).getY(), 0);
+		}
+	}
+
+	@Test
+	public void testSameAsFile() throws Exception {
+
+		TSP tsp = new TSP("tsplibx/clusters300.tsp");
+		assertEquals(300, tsp.getSize());
+		assertEquals(308, tsp.getNodes().get(0).getX(), 0);
+		assertEquals(163, tsp.getNodes().get(0).getY(), 0);
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		assertInvalid(HEADER + "1 308 163\n2 1x 5\n", 8, 3);
+		assertInvalid(HEADER + "1 308 163\n3 1 5\n", 8, 1);
+		assertInvalid(HEADER + "1 308 163\n2 1\n3 1 5\n", 8, 4);
+		assertInvalid("NAME : small\nDIMENSION : three\n", 2, 13);
+		assertInvalid("NAME : small\nFOO\n", 2, 1);
+	}
+
+	@Test(expected = UnsupportedFileException.class)
+	public void testUnsupported() throws Exception {
+		new TSP(write("TYPE : ATSP\n", false));
+	}
+}
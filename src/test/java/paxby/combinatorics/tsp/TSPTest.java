@@ -2,12 +2,19 @@ package paxby.combinatorics.tsp;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -68,4 +75,139 @@ public class TSPTest {
 		TSP tsp = new TSP(nodes);
 		assertEquals(8, tsp.getNNTour().getLength());
 	}
+
+	@Test
+	public void testDistanceModes() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+
+		TSP tsp = new TSP(tspLib + "random100.tsp");
+		int[][] matrix = TSP.getDistanceMatrix(tsp.getNodes());
+
+		for (TSP.DistanceMode mode: TSP.DistanceMode.values()) {
+			tsp.setDistanceMode(mode);
+			for (int i = 0; i < tsp.getSize(); i++) {
+				for (int j = 0; j < tsp.getSize(); j++) {
+					assertEquals(mode.toString(), matrix[i][j], tsp.getDistance().get(i, j));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMatrixDistance() {
+
+		Random ran = new Random(12345);
+		nodes = new ArrayList<Node>();
+		for (int i = 0; i < 1200; i++) {
+			nodes.add(new Node(i, ran.nextDouble() * 1000, ran.nextDouble() * 1000));
+		}
+
+		MatrixDistance sequential = new MatrixDistance(nodes, null);
+		MatrixDistance parallel;
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			parallel = new MatrixDistance(nodes, executor);
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int i = 0; i < nodes.size(); i++) {
+			for (int j = 0; j < nodes.size(); j++) {
+				int d = i == j ? 0 : nodes.get(i).distToNint(nodes.get(j));
+				assertEquals(d, sequential.get(i, j));
+				assertEquals(d, parallel.get(i, j));
+			}
+		}
+
+		assertArrayEquals(sequential.getMatrix(), new MatrixDistance(sequential.getMatrix()).getMatrix());
+	}
+
+	@Test
+	public void testRenumber() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+
+		TSP tsp = new TSP(tspLib + "random300.tsp");
+
+		for (SpaceFillingCurve curve: SpaceFillingCurve.values()) {
+			TSP renumbered = tsp.renumber(curve);
+			boolean[] seen = new boolean[tsp.getSize()];
+			double original = 0, spread = 0;
+
+			for (int k = 0; k < renumbered.getSize(); k++) {
+				int i = renumbered.getOriginalIndex(k);
+				assertEquals(false, seen[i]);
+				seen[i] = true;
+				assertEquals(tsp.getXCoordinates()[i], renumbered.getXCoordinates()[k], 0);
+				assertEquals(tsp.getYCoordinates()[i], renumbered.getYCoordinates()[k], 0);
+
+				// consecutive nodes are much closer after renumbering
+				if (k > 0) {
+					original += tsp.getNodes().get(k).distTo(tsp.getNodes().get(k - 1));
+					spread += renumbered.getNodes().get(k).distTo(renumbered.getNodes().get(k - 1));
+				}
+			}
+			assertTrue(curve.toString(), spread < original / 4);
+
+			// tours map back to tours of the same length
+			Tour tour = renumbered.getNNTour();
+			assertEquals(tour.getLength(), new Tour(tsp, renumbered.getOriginalWalk(tour)).getLength());
+
+			// renumbering again keeps the mapping to the input
+			TSP twice = renumbered.renumber(curve);
+			for (int k = 0; k < twice.getSize(); k++) {
+				assertEquals(tsp.getXCoordinates()[twice.getOriginalIndex(k)], twice.getXCoordinates()[k], 0);
+			}
+		}
+	}
+
+	@Test
+	public void testGetHopkins() throws FileNotFoundException, UnsupportedFileException, InvalidFileException {
+
+		TSP random = new TSP(tspLib + "random300.tsp");
+		TSP clusters = new TSP(tspLib + "clusters300.tsp");
+
+		random.setSeed(12345);
+		double h = random.getHopkins(8, 0.1, null);
+
+		// same tests, whether run on one thread or several
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			random.setSeed(12345);
+			assertEquals(h, random.getHopkins(8, 0.1, executor), 0);
+		} finally {
+			executor.shutdown();
+		}
+
+		random.setSeed(12345);
+		assertEquals(h, random.getHopkins(8, 0.1), 0);
+
+		clusters.setSeed(12345);
+		assertTrue(clusters.getHopkins(8, 0.1) > h);
+	}
+
+	@Test(timeout = 60000)
+	public void testPreprocessingOnPoolThreads() throws Exception {
+
+		ExecutorService executor = Preprocessing.getExecutor();
+		assumeNotNull(executor); // single processor
+
+		Random ran = new Random(12345);
+		final List<Node> large = new ArrayList<Node>();
+		for (int i = 0; i < TriangularRows.PARALLEL_LIMIT; i++) {
+			large.add(new Node(i, ran.nextDouble() * 1000, ran.nextDouble() * 1000));
+		}
+
+		// one task per thread, each running parallel preprocessing itself: it must not wait for the busy pool
+		List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+		for (int t = 0; t < 2 * Runtime.getRuntime().availableProcessors(); t++) {
+			tasks.add(new Callable<Double>() {
+				@Override
+				public Double call() throws Exception {
+					new MatrixDistance(large);
+					return new TSP(tspLib + "random300.tsp").getHopkins(8, 0.1);
+				}
+			});
+		}
+		for (Future<Double> result : executor.invokeAll(tasks)) {
+			assertTrue(result.get() > 0);
+		}
+	}
 }
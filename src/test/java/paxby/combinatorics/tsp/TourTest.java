@@ -28,7 +28,7 @@ public class TourTest {
 
 		tsp = mock(TSP.class);
 		when(tsp.getNodes()).thenReturn(nodes);
-		when(tsp.getDistanceMatrix()).thenReturn(TSP.getDistanceMatrix(nodes));
+		when(tsp.getDistance()).thenReturn(new MatrixDistance(nodes));
 	}
 	
 	@Test
@@ -69,4 +69,48 @@ public class TourTest {
 		
 	}
 
+	@Test
+	public void testBetween() {
+
+		Tour tour = new Tour(tsp, new int[] { 0, 2, 3, 1, 4 });
+
+		assertTrue(tour.between(2, 3, 1));
+		assertTrue(tour.between(1, 0, 2));
+		assertTrue(tour.between(2, 2, 1));
+		assertFalse(tour.between(2, 4, 1));
+		assertFalse(tour.between(1, 3, 2));
+	}
+
+	@Test
+	public void testMoves() {
+
+		Tour tour = new Tour(tsp, new int[] { 0, 1, 2, 3, 4 });
+
+		// reverses the longer side internally
+		tour.twoOptMove(0, 3);
+		assertArrayEquals(new int[] { 0, 3, 2, 1, 4 }, walk(tour));
+		assertTrue(tour.between(3, 1, 4));
+		assertFalse(tour.between(1, 3, 4));
+
+		tour.twoOptMove(3, 1);
+		assertArrayEquals(new int[] { 0, 3, 1, 2, 4 }, walk(tour));
+
+		tour.moveSegment(1, 2, 4, false);
+		assertArrayEquals(new int[] { 0, 3, 4, 1, 2 }, walk(tour));
+
+		tour.moveSegment(3, 4, 1, true);
+		assertArrayEquals(new int[] { 0, 1, 4, 3, 2 }, walk(tour));
+
+		for (int i = 0; i < nodes.size(); i++) {
+			assertEquals(i, tour.getPrev(tour.getNext(i)));
+		}
+	}
+
+	private int[] walk(Tour tour) {
+		int[] walk = new int[nodes.size()];
+		for (int i = 1; i < walk.length; i++) {
+			walk[i] = tour.getNext(walk[i - 1]);
+		}
+		return walk;
+	}
 }